@@ -0,0 +1,100 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.response.ErrorResponse;
+import com.example.bankcards.exception.InvalidTransactionException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Стоимость отказа с ответом 400: исключение выбрасывается на заданной глубине стека,
+ * перехватывается и превращается в JSON.
+ * <ul>
+ *     <li>legacy — исключение со стеком, тело из HashMap с LocalDateTime (прежний GlobalExceptionHandler);</li>
+ *     <li>stackless — {@link InvalidTransactionException} без стека и {@link ErrorResponse};</li>
+ *     <li>preallocated — заранее созданные исключение и тело ответа.</li>
+ * </ul>
+ * Глубина имитирует стек фильтров Spring Security и Spring MVC над сервисом.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorResponseBenchmark {
+
+    private static final String MESSAGE = "Нельзя переводить средства на ту же карту";
+    private static final InvalidTransactionException PREALLOCATED_EXCEPTION = new InvalidTransactionException(MESSAGE);
+    private static final ErrorResponse PREALLOCATED_BODY = ErrorResponse.of(HttpStatus.BAD_REQUEST, MESSAGE);
+
+    @Param({"20", "120"})
+    private int depth;
+
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public byte[] legacy() throws IOException {
+        try {
+            throwAt(depth, () -> new IllegalStateException(MESSAGE));
+            return null;
+        } catch (RuntimeException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("timestamp", LocalDateTime.now());
+            errorResponse.put("status", HttpStatus.BAD_REQUEST.value());
+            errorResponse.put("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
+            errorResponse.put("message", e.getMessage());
+            return objectMapper.writeValueAsBytes(errorResponse);
+        }
+    }
+
+    @Benchmark
+    public byte[] stackless() throws IOException {
+        try {
+            throwAt(depth, () -> new InvalidTransactionException(MESSAGE));
+            return null;
+        } catch (InvalidTransactionException e) {
+            return objectMapper.writeValueAsBytes(ErrorResponse.of(HttpStatus.BAD_REQUEST, e.getMessage()));
+        }
+    }
+
+    @Benchmark
+    public byte[] preallocated() throws IOException {
+        try {
+            throwAt(depth, () -> PREALLOCATED_EXCEPTION);
+            return null;
+        } catch (InvalidTransactionException e) {
+            return objectMapper.writeValueAsBytes(PREALLOCATED_BODY);
+        }
+    }
+
+    private static void throwAt(int depth, Supplier<? extends RuntimeException> exception) {
+        if (depth == 0) {
+            throw exception.get();
+        }
+        throwAt(depth - 1, exception);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.config.JwtSigningProperties;
+import com.example.bankcards.security.JwtKeyRing;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность проверки и выпуска access-токена для HS256, ES256 и EdDSA.
+ * Проверка выполняется на каждом запросе, выпуск — при входе и обновлении токена.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerifyBenchmark {
+
+    private static final String SECRET = "MySecretKeyForJWTTokenGeneration12345678901234567890";
+
+    @Param({"HS256", "ES256", "EdDSA"})
+    private String algorithm;
+
+    private JwtKeyRing keyRing;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        keyRing = new JwtKeyRing(new JwtSigningProperties(algorithm, null, List.of()), SECRET);
+        token = sign();
+    }
+
+    @Benchmark
+    public Claims verify() {
+        return keyRing.parser().parseSignedClaims(token).getPayload();
+    }
+
+    @Benchmark
+    public String sign() {
+        return keyRing.sign(Jwts.builder()
+                .subject("benchmark-user")
+                .claim("roles", List.of("ROLE_ROLE_USER"))
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 900_000)));
+    }
+}
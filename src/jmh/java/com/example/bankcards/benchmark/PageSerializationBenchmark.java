@@ -0,0 +1,109 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.response.PageResponse;
+import com.example.bankcards.dto.response.TransactionResponse;
+import com.example.bankcards.entity.enums.TransactionStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Время сериализации страницы переводов и размер ответа: полная структура {@link Page}
+ * против {@link PageResponse}, с модулем Blackbird и без него, без сжатия и с gzip.
+ * Размеры ответа (байты JSON и gzip) печатаются при подготовке каждой комбинации параметров.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageSerializationBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    @Param({"page", "compact"})
+    private String envelope;
+
+    @Param({"false", "true"})
+    private boolean blackbird;
+
+    private ObjectMapper objectMapper;
+    private Object body;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (blackbird) {
+            builder.modulesToInstall(BlackbirdModule.class);
+        }
+        objectMapper = builder.build();
+
+        Page<TransactionResponse> page = new PageImpl<>(transactions(pageSize),
+                PageRequest.of(0, pageSize, Sort.by(Sort.Direction.DESC, "transactionDate")), 10_000);
+        body = "compact".equals(envelope) ? PageResponse.of(page) : page;
+
+        System.out.printf("%n%s, %d записей: JSON %d байт, gzip %d байт%n",
+                envelope, pageSize, serialize().length, serializeGzip().length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(body);
+    }
+
+    @Benchmark
+    public byte[] serializeGzip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            objectMapper.writeValue(gzip, body);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<TransactionResponse> transactions(int count) {
+        LocalDateTime start = LocalDateTime.of(2025, 6, 1, 9, 0);
+        List<TransactionResponse> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDateTime date = start.plusMinutes(37L * i);
+            rows.add(new TransactionResponse(
+                    100_000L + i,
+                    1L + i % 3,
+                    "**** **** **** " + (3456 + i % 3),
+                    4L + i % 5,
+                    "**** **** **** " + (7890 + i % 5),
+                    BigDecimal.valueOf(1_000 + 137L * i, 2),
+                    i % 4 == 0 ? null : "Перевод между картами №" + i,
+                    TransactionStatus.COMPLETED,
+                    date,
+                    date.plusSeconds(1),
+                    null));
+        }
+        return rows;
+    }
+}
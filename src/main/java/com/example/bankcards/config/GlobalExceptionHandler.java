@@ -1,15 +1,21 @@
 package com.example.bankcards.config;
 
+import com.example.bankcards.dto.response.ErrorResponse;
 import com.example.bankcards.exception.CardNotFoundException;
 import com.example.bankcards.exception.DuplicateCardNumberException;
 import com.example.bankcards.exception.EncryptionException;
+import com.example.bankcards.exception.HashingCapacityExceededException;
 import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.InvalidCursorException;
 import com.example.bankcards.exception.InvalidTransactionException;
 import com.example.bankcards.exception.TransactionNotFoundException;
 import com.example.bankcards.exception.UserAlreadyExistsException;
 import com.example.bankcards.exception.UserNotFoundException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -18,110 +24,137 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
-import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
- * Глобальный обработчик исключений
+ * Глобальный обработчик исключений.
+ * <p>
+ * Ошибки возвращаются как {@link ErrorResponse} (RFC 7807, application/problem+json).
+ * Ответы с постоянным текстом создаются один раз: заголовки ResponseEntity неизменяемы,
+ * поэтому один экземпляр безопасно отдавать всем запросам
  */
 @RestControllerAdvice
 @Slf4j
 public class GlobalExceptionHandler {
 
+    private static final ResponseEntity<ErrorResponse> DATA_PROCESSING_ERROR =
+            buildErrorResponse("Ошибка обработки данных", HttpStatus.INTERNAL_SERVER_ERROR);
+    private static final ResponseEntity<ErrorResponse> FORBIDDEN =
+            buildErrorResponse("Недостаточно прав для выполнения операции", HttpStatus.FORBIDDEN);
+    private static final ResponseEntity<ErrorResponse> INTERNAL_ERROR =
+            buildErrorResponse("Внутренняя ошибка сервера", HttpStatus.INTERNAL_SERVER_ERROR);
+    private static final ResponseEntity<ErrorResponse> BAD_CREDENTIALS =
+            buildErrorResponse("Неверное имя пользователя или пароль", HttpStatus.UNAUTHORIZED);
+    private static final ResponseEntity<ErrorResponse> VERSION_CONFLICT =
+            buildErrorResponse("Данные изменены другим запросом, повторите операцию", HttpStatus.CONFLICT);
+
     @ExceptionHandler(EncryptionException.class)
-    public ResponseEntity<Map<String, Object>> handleEncryptionException(EncryptionException e) {
+    public ResponseEntity<ErrorResponse> handleEncryptionException(EncryptionException e) {
         log.error("Ошибка шифрования: {}", e.getMessage(), e);
-        return buildErrorResponse("Ошибка обработки данных", HttpStatus.INTERNAL_SERVER_ERROR);
+        return DATA_PROCESSING_ERROR;
     }
 
     @ExceptionHandler(UserNotFoundException.class)
-    public ResponseEntity<Map<String, Object>> handleUserNotFoundException(UserNotFoundException e) {
+    public ResponseEntity<ErrorResponse> handleUserNotFoundException(UserNotFoundException e) {
         log.warn("Пользователь не найден: {}", e.getMessage());
         return buildErrorResponse(e.getMessage(), HttpStatus.NOT_FOUND);
     }
 
     @ExceptionHandler(UserAlreadyExistsException.class)
-    public ResponseEntity<Map<String, Object>> handleUserAlreadyExistsException(UserAlreadyExistsException e) {
+    public ResponseEntity<ErrorResponse> handleUserAlreadyExistsException(UserAlreadyExistsException e) {
         log.warn("Пользователь уже существует: {}", e.getMessage());
         return buildErrorResponse(e.getMessage(), HttpStatus.CONFLICT);
     }
 
     @ExceptionHandler(CardNotFoundException.class)
-    public ResponseEntity<Map<String, Object>> handleCardNotFoundException(CardNotFoundException e) {
+    public ResponseEntity<ErrorResponse> handleCardNotFoundException(CardNotFoundException e) {
         log.warn("Карта не найдена: {}", e.getMessage());
         return buildErrorResponse(e.getMessage(), HttpStatus.NOT_FOUND);
     }
 
     @ExceptionHandler(DuplicateCardNumberException.class)
-    public ResponseEntity<Map<String, Object>> handleDuplicateCardNumberException(DuplicateCardNumberException e) {
+    public ResponseEntity<ErrorResponse> handleDuplicateCardNumberException(DuplicateCardNumberException e) {
         log.warn("Дублирование номера карты: {}", e.getMessage());
         return buildErrorResponse(e.getMessage(), HttpStatus.CONFLICT);
     }
 
     @ExceptionHandler(TransactionNotFoundException.class)
-    public ResponseEntity<Map<String, Object>> handleTransactionNotFoundException(TransactionNotFoundException e) {
+    public ResponseEntity<ErrorResponse> handleTransactionNotFoundException(TransactionNotFoundException e) {
         log.warn("Транзакция не найдена: {}", e.getMessage());
         return buildErrorResponse(e.getMessage(), HttpStatus.NOT_FOUND);
     }
 
     @ExceptionHandler(InsufficientFundsException.class)
-    public ResponseEntity<Map<String, Object>> handleInsufficientFundsException(InsufficientFundsException e) {
+    public ResponseEntity<ErrorResponse> handleInsufficientFundsException(InsufficientFundsException e) {
         log.warn("Недостаточно средств: {}", e.getMessage());
         return buildErrorResponse(e.getMessage(), HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler(InvalidTransactionException.class)
-    public ResponseEntity<Map<String, Object>> handleInvalidTransactionException(InvalidTransactionException e) {
+    public ResponseEntity<ErrorResponse> handleInvalidTransactionException(InvalidTransactionException e) {
         log.warn("Некорректная транзакция: {}", e.getMessage());
         return buildErrorResponse(e.getMessage(), HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidCursorException(InvalidCursorException e) {
+        log.warn("Некорректный курсор: {}", e.getMessage());
+        return buildErrorResponse(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(AccessDeniedException.class)
-    public ResponseEntity<Map<String, Object>> handleAccessDeniedException(AccessDeniedException e) {
+    public ResponseEntity<ErrorResponse> handleAccessDeniedException(AccessDeniedException e) {
         log.warn("Отказ в доступе: {}", e.getMessage());
-        return buildErrorResponse("Недостаточно прав для выполнения операции", HttpStatus.FORBIDDEN);
+        return FORBIDDEN;
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<Map<String, Object>> handleValidationException(MethodArgumentNotValidException e) {
+    public ResponseEntity<ErrorResponse> handleValidationException(MethodArgumentNotValidException e) {
         log.warn("Ошибка валидации: {}", e.getMessage());
-        
-        Map<String, String> errors = new HashMap<>();
+
+        Map<String, String> errors = new LinkedHashMap<>();
         e.getBindingResult().getAllErrors().forEach(error -> {
             String fieldName = ((FieldError) error).getField();
             String errorMessage = error.getDefaultMessage();
             errors.put(fieldName, errorMessage);
         });
 
-        Map<String, Object> errorResponse = new HashMap<>();
-        errorResponse.put("timestamp", LocalDateTime.now());
-        errorResponse.put("status", HttpStatus.BAD_REQUEST.value());
-        errorResponse.put("error", "Validation Failed");
-        errorResponse.put("message", "Ошибка валидации входных данных");
-        errorResponse.put("errors", errors);
-        
-        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .body(ErrorResponse.validation("Ошибка валидации входных данных", errors));
     }
 
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<Map<String, Object>> handleGenericException(Exception e) {
+    public ResponseEntity<ErrorResponse> handleGenericException(Exception e) {
         log.error("Неожиданная ошибка: {}", e.getMessage(), e);
-        return buildErrorResponse("Внутренняя ошибка сервера", HttpStatus.INTERNAL_SERVER_ERROR);
+        return INTERNAL_ERROR;
     }
 
     @ExceptionHandler(BadCredentialsException.class)
-    public ResponseEntity<Map<String, Object>> handleBadCredentialsException(BadCredentialsException e) {
+    public ResponseEntity<ErrorResponse> handleBadCredentialsException(BadCredentialsException e) {
         log.warn("Неверные учетные данные: {}", e.getMessage());
-        return buildErrorResponse("Неверное имя пользователя или пароль", HttpStatus.UNAUTHORIZED);
+        return BAD_CREDENTIALS;
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailureException(OptimisticLockingFailureException e) {
+        log.warn("Конфликт версий: {}", e.getMessage());
+        return VERSION_CONFLICT;
+    }
+
+    @ExceptionHandler(HashingCapacityExceededException.class)
+    public ResponseEntity<ErrorResponse> handleHashingCapacityExceededException(HashingCapacityExceededException e) {
+        log.warn("Пул хеширования паролей перегружен: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .body(ErrorResponse.of(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage()));
     }
 
-    private ResponseEntity<Map<String, Object>> buildErrorResponse(String message, HttpStatus status) {
-        Map<String, Object> errorResponse = new HashMap<>();
-        errorResponse.put("timestamp", LocalDateTime.now());
-        errorResponse.put("status", status.value());
-        errorResponse.put("error", status.getReasonPhrase());
-        errorResponse.put("message", message);
-        return new ResponseEntity<>(errorResponse, status);
+    private static ResponseEntity<ErrorResponse> buildErrorResponse(String message, HttpStatus status) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .body(ErrorResponse.of(status, message));
     }
 }
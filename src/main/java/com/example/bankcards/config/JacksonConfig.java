@@ -0,0 +1,23 @@
+package com.example.bankcards.config;
+
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Настройка сериализации JSON.
+ * <p>
+ * Модуль Blackbird заменяет рефлексивные вызовы аксессоров DTO сгенерированными через
+ * {@code LambdaMetafactory}, что ускоряет сериализацию страниц с сотнями записей.
+ * Spring Boot регистрирует бин модуля в общем ObjectMapper
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.json.blackbird.enabled", havingValue = "true", matchIfMissing = true)
+    public BlackbirdModule blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
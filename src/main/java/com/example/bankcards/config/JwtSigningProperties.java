@@ -0,0 +1,31 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.core.io.Resource;
+
+import java.util.List;
+
+/**
+ * Настройки подписи JWT.
+ * <p>
+ * HS256 — общий секрет {@code app.jwt.secret}. ES256 и EdDSA — ключи в PEM: токены подписывает
+ * ключ {@code activeKeyId}, проверка выполняется всеми ключами набора по заголовку {@code kid}.
+ * Узлам, только проверяющим токены, достаточно публичных ключей.
+ */
+@ConfigurationProperties(prefix = "app.jwt.signing")
+public record JwtSigningProperties(
+        @DefaultValue("HS256") String algorithm,
+        String activeKeyId,
+        @DefaultValue List<Key> keys
+) {
+
+    /**
+     * Ключ набора: приватный ключ в PKCS#8 PEM (необязателен), публичный в X.509 PEM
+     */
+    public record Key(
+            String id,
+            Resource privateKey,
+            Resource publicKey
+    ) {}
+}
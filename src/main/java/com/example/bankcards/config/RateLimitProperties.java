@@ -0,0 +1,32 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Настройки ограничения частоты запросов.
+ * Маршруты проверяются по порядку, применяется первый совпавший.
+ */
+@ConfigurationProperties(prefix = "app.rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("PT10M") Duration idleTimeout,
+        @DefaultValue List<Route> routes
+) {
+
+    /**
+     * Лимит маршрута: емкость корзины и скорость пополнения токенов.
+     * Пустой method означает любой HTTP-метод.
+     */
+    public record Route(
+            String name,
+            String method,
+            String path,
+            long capacity,
+            double refillPerSecond,
+            @DefaultValue("false") boolean byIp
+    ) {}
+}
@@ -0,0 +1,50 @@
+package com.example.bankcards.config;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Учет пользователей, чтения которых временно направляются на основную БД.
+ * <p>
+ * После записи пользователь закрепляется за основной БД на время, превышающее ожидаемую
+ * задержку репликации, чтобы сразу после перевода не прочитать устаревший баланс с реплики.
+ * Состояние хранится в памяти узла.
+ */
+public class ReplicaPinningRegistry {
+
+    private static final int PURGE_THRESHOLD = 10_000;
+
+    private final Map<String, Long> pinnedUntil = new ConcurrentHashMap<>();
+    private final long pinNanos;
+
+    public ReplicaPinningRegistry(Duration pinDuration) {
+        this.pinNanos = pinDuration.toNanos();
+    }
+
+    /**
+     * Закрепление пользователя за основной БД
+     */
+    public void pin(String username) {
+        long now = System.nanoTime();
+        if (pinnedUntil.size() >= PURGE_THRESHOLD) {
+            pinnedUntil.values().removeIf(until -> until - now <= 0);
+        }
+        pinnedUntil.put(username, now + pinNanos);
+    }
+
+    /**
+     * Проверка, закреплен ли пользователь за основной БД
+     */
+    public boolean isPinned(String username) {
+        Long until = pinnedUntil.get(username);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() > 0) {
+            return true;
+        }
+        pinnedUntil.remove(username, until);
+        return false;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.bankcards.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Маршрутизация соединений: read-only транзакции обслуживает реплика, остальные — основная БД.
+ * <p>
+ * Должен использоваться через {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}:
+ * признак read-only выставляется после начала транзакции, и соединение должно запрашиваться позже.
+ * Пользователь, зафиксировавший запись, на время закрепляется за основной БД.
+ * Отдельное чтение можно направить на основную БД через {@link #readFromPrimary(Supplier)}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * Ключи целевых источников данных
+     */
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    private static final ThreadLocal<Boolean> PRIMARY_READS = new ThreadLocal<>();
+
+    private final ReplicaPinningRegistry pinningRegistry;
+
+    public ReplicaRoutingDataSource(ReplicaPinningRegistry pinningRegistry) {
+        this.pinningRegistry = pinningRegistry;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Route.PRIMARY;
+        }
+
+        String username = currentUsername();
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY_READS.get() != null || (username != null && pinningRegistry.isPinned(username))
+                    ? Route.PRIMARY : Route.REPLICA;
+        }
+
+        if (username != null) {
+            pinOnCommit(username);
+        }
+        return Route.PRIMARY;
+    }
+
+    /**
+     * Выполнение действия с чтением из основной БД. Действует на соединения, запрошенные внутри action,
+     * поэтому action должен начинать собственную транзакцию
+     */
+    public static <T> T readFromPrimary(Supplier<T> action) {
+        Boolean previous = PRIMARY_READS.get();
+        PRIMARY_READS.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_READS.remove();
+            }
+        }
+    }
+
+    private void pinOnCommit(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        boolean registered = TransactionSynchronizationManager.getSynchronizations().stream()
+                .anyMatch(PinOnCommit.class::isInstance);
+        if (!registered) {
+            TransactionSynchronizationManager.registerSynchronization(new PinOnCommit(username));
+        }
+    }
+
+    /**
+     * Имя аутентифицированного пользователя; анонимные запросы (anonymousUser) не закрепляются
+     */
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken) ? authentication.getName() : null;
+    }
+
+    private class PinOnCommit implements TransactionSynchronization {
+
+        private final String username;
+
+        PinOnCommit(String username) {
+            this.username = username;
+        }
+
+        @Override
+        public void afterCommit() {
+            pinningRegistry.pin(username);
+        }
+    }
+}
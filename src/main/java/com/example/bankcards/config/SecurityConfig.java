@@ -1,8 +1,15 @@
 package com.example.bankcards.config;
 
+import com.example.bankcards.security.BoundedPasswordEncoder;
 import com.example.bankcards.security.JwtAuthenticationFilter;
+import com.example.bankcards.security.RateLimitFilter;
 import com.example.bankcards.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -14,20 +21,39 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.time.Duration;
+import java.util.Map;
+
 /**
  * Конфигурация Spring Security
  */
 @Configuration
 @EnableWebSecurity
+@EnableConfigurationProperties({RateLimitProperties.class, JwtSigningProperties.class})
 @RequiredArgsConstructor
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final RateLimitFilter rateLimitFilter;
     private final CustomUserDetailsService userDetailsService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.security.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    @Value("${app.security.password.hashing-threads:0}")
+    private int hashingThreads;
+
+    @Value("${app.security.password.hashing-queue-capacity:64}")
+    private int hashingQueueCapacity;
+
+    @Value("${app.security.password.hashing-timeout:PT2S}")
+    private Duration hashingTimeout;
 
     /**
      * Конфигурация цепочки фильтров безопасности
@@ -37,23 +63,41 @@ public class SecurityConfig {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authz -> authz
+                        // Повторная диспетчеризация асинхронных ответов (SSE) уже прошла проверку доступа
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/actuator/**").permitAll()
+                        .requestMatchers("/.well-known/jwks.json").permitAll()
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider())
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
 
     /**
-     * Бин для шифрования паролей
+     * Бин для шифрования паролей.
+     * <p>
+     * Новые хеши сохраняются с префиксом {@code {bcrypt}} и заданной стоимостью; хеши без префикса
+     * и с меньшей стоимостью проверяются BCrypt и перехешируются при успешном входе.
+     * Хеширование выполняется в ограниченном пуле, отдельном от потоков обработки запросов.
      */
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder() {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        int threads = hashingThreads > 0
+                ? hashingThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(delegating, threads,
+                hashingQueueCapacity, hashingTimeout);
+        ExecutorServiceMetrics.monitor(meterRegistry, encoder.getExecutor(), "password-hashing");
+        return encoder;
     }
 
     /**
@@ -63,6 +107,7 @@ public class SecurityConfig {
     public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
+        authProvider.setUserDetailsPasswordService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
         return authProvider;
     }
@@ -0,0 +1,36 @@
+package com.example.bankcards.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+/**
+ * Настройки режима виртуальных потоков (Java 21+, spring.threads.virtual.enabled=true)
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadsConfig {
+
+    /**
+     * Лимит одновременных запросов к API, согласованный с размером пула соединений.
+     * По умолчанию — два запроса на соединение: часть запроса выполняется без БД.
+     */
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            @Value("${app.concurrency.max-in-flight:0}") int maxInFlight,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+            @Value("${app.concurrency.acquire-timeout:PT2S}") Duration acquireTimeout) {
+        int limit = maxInFlight > 0 ? maxInFlight : poolSize * 2;
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration =
+                new FilterRegistrationBean<>(new ConcurrencyLimitFilter(limit, acquireTimeout));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
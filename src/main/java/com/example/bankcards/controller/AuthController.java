@@ -2,6 +2,7 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.response.AuthResponse;
 import com.example.bankcards.dto.request.LoginRequest;
+import com.example.bankcards.dto.request.RefreshTokenRequest;
 import com.example.bankcards.dto.request.RegisterRequest;
 import com.example.bankcards.service.AuthService;
 import jakarta.validation.Valid;
@@ -51,6 +52,32 @@ public class AuthController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Обновление пары токенов по refresh-токену
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        log.debug("Запрос на обновление токенов");
+
+        AuthResponse response = authService.refresh(request.refreshToken());
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Выход: отзыв refresh-токена и текущего access-токена
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(
+            @Valid @RequestBody RefreshTokenRequest request,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+
+        String accessToken = authHeader != null && authHeader.startsWith("Bearer ") ? authHeader.substring(7) : null;
+        authService.logout(request.refreshToken(), accessToken);
+
+        return ResponseEntity.noContent().build();
+    }
+
     /**
      * Проверка валидности токена
      */
@@ -1,19 +1,31 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.request.CardCreateRequest;
+import com.example.bankcards.dto.request.CardSearchRequest;
+import com.example.bankcards.dto.response.CardImportResponse;
 import com.example.bankcards.dto.response.CardResponse;
+import com.example.bankcards.dto.response.PageResponse;
 import com.example.bankcards.dto.request.CardUpdateRequest;
+import com.example.bankcards.service.CardImportService;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.util.ETags;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Контроллер для управления банковскими картами
@@ -24,7 +36,13 @@ import org.springframework.web.bind.annotation.*;
 @Slf4j
 public class CardController {
 
+    /**
+     * Ответы с ETag кешируются только клиентом и перепроверяются при каждом запросе
+     */
+    static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final CardService cardService;
+    private final CardImportService cardImportService;
 
     /**
      * Создание новой карты
@@ -46,26 +64,41 @@ public class CardController {
     @GetMapping("/{cardId}")
     public ResponseEntity<CardResponse> getCard(
             @PathVariable Long cardId,
-            Authentication authentication) {
+            Authentication authentication,
+            WebRequest request) {
         
         log.debug("Запрос карты с ID: {} от пользователя: {}", cardId, authentication.getName());
-        
-        CardResponse response = cardService.getCard(cardId, authentication.getName());
-        return ResponseEntity.ok(response);
+
+        // При совпадении If-None-Match ответ 304 формируется без загрузки карты
+        long version = cardService.getCardVersion(cardId, authentication.getName());
+        String eTag = ETags.card("card", cardId, version);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        
+        // Тело не старше версии, по которой построен ETag
+        CardResponse response = cardService.getCard(cardId, authentication.getName(), version);
+        return ResponseEntity.ok().cacheControl(REVALIDATE).eTag(eTag).body(response);
     }
 
     /**
      * Получение всех карт текущего пользователя
      */
     @GetMapping
-    public ResponseEntity<Page<CardResponse>> getUserCards(
+    public ResponseEntity<PageResponse<CardResponse>> getUserCards(
             @PageableDefault() Pageable pageable,
-            Authentication authentication) {
+            Authentication authentication,
+            WebRequest request) {
         
         log.debug("Запрос карт пользователя: {}", authentication.getName());
+
+        String eTag = cardService.getUserCardsETag("cards", authentication.getName(), pageable);
+        if (eTag != null && request.checkNotModified(eTag)) {
+            return null;
+        }
         
         Page<CardResponse> response = cardService.getUserCards(authentication.getName(), pageable);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().cacheControl(REVALIDATE).eTag(eTag).body(PageResponse.of(response));
     }
 
     /**
@@ -129,13 +162,43 @@ public class CardController {
      * Получение всех карт (только для администраторов)
      */
     @GetMapping("/admin/all")
-    public ResponseEntity<Page<CardResponse>> getAllCards(
+    public ResponseEntity<PageResponse<CardResponse>> getAllCards(
             @PageableDefault(size = 20) Pageable pageable,
             Authentication authentication) {
         
         log.info("Запрос всех карт администратором: {}", authentication.getName());
         
         Page<CardResponse> response = cardService.getAllCards(authentication.getName(), pageable);
+        return ResponseEntity.ok(PageResponse.of(response));
+    }
+
+    /**
+     * Поиск карт по статусу, владельцу, имени держателя и последним цифрам номера (только для администраторов)
+     */
+    @GetMapping("/admin/search")
+    public ResponseEntity<PageResponse<CardResponse>> searchCards(
+            @Valid @ModelAttribute CardSearchRequest criteria,
+            @PageableDefault(size = 20, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable,
+            Authentication authentication) {
+
+        log.info("Поиск карт администратором: {}", authentication.getName());
+
+        Page<CardResponse> response = cardService.searchCards(criteria, authentication.getName(), pageable);
+        return ResponseEntity.ok(PageResponse.of(response));
+    }
+
+    /**
+     * Пакетный импорт карт из CSV (только для администраторов).
+     * Тело запроса читается потоково, ошибки по строкам записываются в файл результата.
+     */
+    @PostMapping(value = "/admin/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<CardImportResponse> importCards(
+            InputStream body,
+            Authentication authentication) throws IOException {
+
+        log.info("Запрос на пакетный импорт карт от администратора: {}", authentication.getName());
+
+        CardImportResponse response = cardImportService.importCards(body, authentication.getName());
         return ResponseEntity.ok(response);
     }
 }
@@ -1,19 +1,40 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.response.BalanceResponse;
+import com.example.bankcards.dto.response.PageResponse;
 import com.example.bankcards.dto.request.TransactionCreateRequest;
+import com.example.bankcards.dto.request.TransactionSearchRequest;
 import com.example.bankcards.dto.response.TransactionResponse;
+import com.example.bankcards.dto.response.TransactionSliceResponse;
+import com.example.bankcards.service.BalanceStreamService;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.StatementExportService;
 import com.example.bankcards.service.TransactionService;
+import com.example.bankcards.util.ETags;
+import com.example.bankcards.util.StatementFormat;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Контроллер для управления транзакциями (переводами)
@@ -24,7 +45,12 @@ import org.springframework.web.bind.annotation.*;
 @Slf4j
 public class TransactionController {
 
+    private static final int GZIP_BUFFER_SIZE = 16 * 1024;
+
     private final TransactionService transactionService;
+    private final CardService cardService;
+    private final StatementExportService statementExportService;
+    private final BalanceStreamService balanceStreamService;
 
     /**
      * Создание перевода между картами
@@ -58,43 +84,78 @@ public class TransactionController {
      * Получение истории переводов пользователя
      */
     @GetMapping
-    public ResponseEntity<Page<TransactionResponse>> getUserTransactions(
+    public ResponseEntity<PageResponse<TransactionResponse>> getUserTransactions(
             @PageableDefault(size = 10) Pageable pageable,
             Authentication authentication) {
         
         log.debug("Запрос истории переводов пользователя: {}", authentication.getName());
         
         Page<TransactionResponse> response = transactionService.getUserTransactions(authentication.getName(), pageable);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(PageResponse.of(response));
     }
 
     /**
-     * Получение переводов конкретной карты
+     * Получение переводов конкретной карты, опционально за период [from, to)
      */
     @GetMapping("/card/{cardId}")
-    public ResponseEntity<Page<TransactionResponse>> getCardTransactions(
+    public ResponseEntity<PageResponse<TransactionResponse>> getCardTransactions(
             @PathVariable Long cardId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
             @PageableDefault(size = 10) Pageable pageable,
             Authentication authentication) {
         
         log.debug("Запрос переводов карты с ID: {} от пользователя: {}", cardId, authentication.getName());
         
-        Page<TransactionResponse> response = transactionService.getCardTransactions(cardId, authentication.getName(), pageable);
-        return ResponseEntity.ok(response);
+        Page<TransactionResponse> response = transactionService.getCardTransactions(
+                cardId, authentication.getName(), from, to, pageable);
+        return ResponseEntity.ok(PageResponse.of(response));
+    }
+
+    /**
+     * Потоковая выгрузка выписки карты в CSV или NDJSON (опционально в gzip)
+     */
+    @GetMapping("/card/{cardId}/export")
+    public void exportCardTransactions(
+            @PathVariable Long cardId,
+            @RequestParam(defaultValue = "CSV") StatementFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            Authentication authentication,
+            HttpServletResponse response) throws IOException {
+
+        log.info("Запрос выгрузки выписки карты с ID: {} в формате {} от пользователя: {}",
+                cardId, format, authentication.getName());
+
+        statementExportService.checkCardAccess(cardId, authentication.getName());
+
+        String fileName = "statement-" + cardId + "." + format.getExtension() + (gzip ? ".gz" : "");
+        response.setContentType(gzip ? "application/gzip" : format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(fileName).build().toString());
+
+        if (gzip) {
+            GZIPOutputStream gzipStream = new GZIPOutputStream(response.getOutputStream(), GZIP_BUFFER_SIZE);
+            statementExportService.exportCardTransactions(cardId, format, gzipStream);
+            gzipStream.finish();
+        } else {
+            OutputStream outputStream = response.getOutputStream();
+            statementExportService.exportCardTransactions(cardId, format, outputStream);
+        }
     }
 
     /**
      * Получение внутренних переводов пользователя (между своими картами)
      */
     @GetMapping("/internal")
-    public ResponseEntity<Page<TransactionResponse>> getInternalTransfers(
+    public ResponseEntity<PageResponse<TransactionResponse>> getInternalTransfers(
             @PageableDefault(size = 10) Pageable pageable,
             Authentication authentication) {
         
         log.debug("Запрос внутренних переводов пользователя: {}", authentication.getName());
         
         Page<TransactionResponse> response = transactionService.getInternalTransfers(authentication.getName(), pageable);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(PageResponse.of(response));
     }
 
     /**
@@ -103,39 +164,76 @@ public class TransactionController {
     @GetMapping("/balance/{cardId}")
     public ResponseEntity<BalanceResponse> getCardBalance(
             @PathVariable Long cardId,
-            Authentication authentication) {
+            Authentication authentication,
+            WebRequest request) {
         
         log.debug("Запрос баланса карты с ID: {} от пользователя: {}", cardId, authentication.getName());
-        
-        BalanceResponse response = transactionService.getCardBalance(cardId, authentication.getName());
-        return ResponseEntity.ok(response);
+
+        long version = cardService.getCardVersion(cardId, authentication.getName());
+        String eTag = ETags.card("balance", cardId, version);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        
+        BalanceResponse response = transactionService.getCardBalance(cardId, authentication.getName(), version);
+        return ResponseEntity.ok().cacheControl(CardController.REVALIDATE).eTag(eTag).body(response);
     }
 
     /**
      * Получение балансов всех карт пользователя
      */
     @GetMapping("/balances")
-    public ResponseEntity<Page<BalanceResponse>> getUserBalances(
+    public ResponseEntity<PageResponse<BalanceResponse>> getUserBalances(
             @PageableDefault(size = 10) Pageable pageable,
-            Authentication authentication) {
+            Authentication authentication,
+            WebRequest request) {
         
         log.debug("Запрос балансов карт пользователя: {}", authentication.getName());
+
+        String eTag = cardService.getUserCardsETag("balances", authentication.getName(), pageable);
+        if (eTag != null && request.checkNotModified(eTag)) {
+            return null;
+        }
         
         Page<BalanceResponse> response = transactionService.getUserBalances(authentication.getName(), pageable);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().cacheControl(CardController.REVALIDATE).eTag(eTag).body(PageResponse.of(response));
+    }
+
+    /**
+     * Поток изменений балансов карт пользователя (Server-Sent Events)
+     */
+    @GetMapping(value = "/balances/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBalances(Authentication authentication) {
+        log.debug("Подписка на изменения балансов пользователя: {}", authentication.getName());
+
+        return balanceStreamService.subscribe(authentication.getName());
     }
 
     /**
      * Получение всех транзакций (только для администраторов)
      */
     @GetMapping("/admin/all")
-    public ResponseEntity<Page<TransactionResponse>> getAllTransactions(
+    public ResponseEntity<PageResponse<TransactionResponse>> getAllTransactions(
             @PageableDefault(size = 20) Pageable pageable,
             Authentication authentication) {
         
         log.info("Запрос всех транзакций администратором: {}", authentication.getName());
         
         Page<TransactionResponse> response = transactionService.getAllTransactions(authentication.getName(), pageable);
+        return ResponseEntity.ok(PageResponse.of(response));
+    }
+
+    /**
+     * Поиск транзакций по фильтрам с keyset-пагинацией (только для администраторов)
+     */
+    @GetMapping("/admin/search")
+    public ResponseEntity<TransactionSliceResponse> searchTransactions(
+            @Valid @ModelAttribute TransactionSearchRequest criteria,
+            Authentication authentication) {
+
+        log.info("Поиск транзакций администратором: {}", authentication.getName());
+
+        TransactionSliceResponse response = transactionService.searchTransactions(criteria, authentication.getName());
         return ResponseEntity.ok(response);
     }
 }
@@ -0,0 +1,20 @@
+package com.example.bankcards.dto.request;
+
+import com.example.bankcards.entity.enums.CardStatus;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Фильтры административного поиска карт; незаданные фильтры не участвуют в запросе
+ */
+public record CardSearchRequest(
+        CardStatus status,
+
+        Long userId,
+
+        @Size(min = 3, max = 100, message = "Строка поиска по имени держателя должна содержать от 3 до 100 символов")
+        String holder,
+
+        @Pattern(regexp = "\\d{4}", message = "Последние цифры номера карты должны содержать 4 цифры")
+        String lastFour
+) {}
@@ -0,0 +1,11 @@
+package com.example.bankcards.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * DTO для запроса обновления или отзыва refresh-токена
+ */
+public record RefreshTokenRequest(
+        @NotBlank(message = "Refresh-токен не может быть пустым")
+        String refreshToken
+) {}
@@ -0,0 +1,40 @@
+package com.example.bankcards.dto.request;
+
+import com.example.bankcards.entity.enums.TransactionStatus;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Фильтры административного поиска транзакций; незаданные фильтры не участвуют в запросе.
+ * Период задается полуинтервалом [from, to), cursor — значение nextCursor предыдущей страницы
+ */
+public record TransactionSearchRequest(
+        TransactionStatus status,
+
+        Long userId,
+
+        Long cardId,
+
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        LocalDateTime from,
+
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        LocalDateTime to,
+
+        @DecimalMin(value = "0.00", message = "Минимальная сумма не может быть отрицательной")
+        BigDecimal minAmount,
+
+        @DecimalMin(value = "0.00", message = "Максимальная сумма не может быть отрицательной")
+        BigDecimal maxAmount,
+
+        String cursor,
+
+        @Min(value = 1, message = "Размер страницы должен быть не меньше 1")
+        @Max(value = 100, message = "Размер страницы должен быть не больше 100")
+        Integer size
+) {}
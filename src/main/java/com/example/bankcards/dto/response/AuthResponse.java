@@ -5,5 +5,7 @@ package com.example.bankcards.dto.response;
  */
 public record AuthResponse(
         String token,
-        long expiresIn
+        long expiresIn,
+        String refreshToken,
+        long refreshExpiresIn
 ) {}
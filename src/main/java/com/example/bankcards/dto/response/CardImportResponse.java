@@ -0,0 +1,11 @@
+package com.example.bankcards.dto.response;
+
+/**
+ * DTO для ответа с результатом пакетного импорта карт
+ */
+public record CardImportResponse(
+        long totalRows,
+        long imported,
+        long failed,
+        String resultFile
+) {}
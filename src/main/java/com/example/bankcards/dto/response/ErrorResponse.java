@@ -0,0 +1,32 @@
+package com.example.bankcards.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+
+/**
+ * Тело ответа об ошибке в формате RFC 7807 (application/problem+json).
+ * type всегда about:blank: смысл ошибки передают статус и title. errors — ошибки полей при валидации.
+ * Время ошибки не передается: его содержит заголовок Date
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ErrorResponse(
+        String type,
+        String title,
+        int status,
+        String detail,
+        Map<String, String> errors
+) {
+
+    private static final String ABOUT_BLANK = "about:blank";
+
+    public static ErrorResponse of(HttpStatus status, String detail) {
+        return new ErrorResponse(ABOUT_BLANK, status.getReasonPhrase(), status.value(), detail, null);
+    }
+
+    public static ErrorResponse validation(String detail, Map<String, String> errors) {
+        return new ErrorResponse(ABOUT_BLANK, HttpStatus.BAD_REQUEST.getReasonPhrase(),
+                HttpStatus.BAD_REQUEST.value(), detail, errors);
+    }
+}
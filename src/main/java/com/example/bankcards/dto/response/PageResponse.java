@@ -0,0 +1,24 @@
+package com.example.bankcards.dto.response;
+
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+/**
+ * Компактная страница для ответа API: содержимое и номер, размер, общее количество элементов и страниц.
+ * Имена полей совпадают с сериализацией {@link Page}, служебные pageable, sort и флаги first/last/empty
+ * не передаются
+ */
+public record PageResponse<T>(
+        List<T> content,
+        int number,
+        int size,
+        long totalElements,
+        int totalPages
+) {
+
+    public static <T> PageResponse<T> of(Page<T> page) {
+        return new PageResponse<>(page.getContent(), page.getNumber(), page.getSize(),
+                page.getTotalElements(), page.getTotalPages());
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.bankcards.dto.response;
+
+import java.util.List;
+
+/**
+ * Страница транзакций keyset-пагинации; nextCursor равен null на последней странице
+ */
+public record TransactionSliceResponse(
+        List<TransactionResponse> content,
+        String nextCursor
+) {}
@@ -35,11 +35,25 @@ public class Card {
     @EqualsAndHashCode.Include
     private String cardNumber;
 
+    @Column(name = "card_number_hash", unique = true, length = 64)
+    @ToString.Exclude
+    private String cardNumberHash;
+
     @Column(name = "card_holder_name", nullable = false)
     @NotBlank
     @Size(max = 100)
     private String cardHolderName;
 
+    /**
+     * Имя держателя в нижнем регистре со схлопнутыми пробелами; вычисляется БД для поиска по подстроке
+     */
+    @Column(name = "card_holder_name_normalized", insertable = false, updatable = false)
+    @ToString.Exclude
+    private String cardHolderNameNormalized;
+
+    @Column(name = "card_last_four", length = 4)
+    private String cardLastFour;
+
     @Column(name = "expiry_date", nullable = false)
     @NotNull
     private LocalDate expiryDate;
@@ -78,6 +92,11 @@ public class Card {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Оптимистическая блокировка: конкурентная запись завершается конфликтом, а не перезаписью
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     // Дополнительный конструктор для удобства
     public Card(String cardNumber, String cardHolderName, LocalDate expiryDate, User user) {
         this.cardNumber = cardNumber;
@@ -4,14 +4,16 @@ import com.example.bankcards.entity.enums.RoleName;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
+import org.hibernate.annotations.Immutable;
 
 import java.util.HashSet;
 import java.util.Set;
 
 /**
- * Сущность роли пользователя
+ * Сущность роли пользователя. Строки справочника неизменяемы и кешируются в {@code RoleCache}
  */
 @Entity
+@Immutable
 @Table(name = "roles")
 @Data
 @Builder
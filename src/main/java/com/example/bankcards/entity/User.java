@@ -59,7 +59,8 @@ public class User {
     @Builder.Default
     private Boolean enabled = true;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    // Роли загружаются явно (EntityGraph) только при аутентификации; проверки ролей идут через RoleCache
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
             name = "user_roles",
             joinColumns = @JoinColumn(name = "user_id"),
@@ -80,6 +81,11 @@ public class User {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Оптимистическая блокировка: конкурентная запись завершается конфликтом, а не перезаписью
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     // Дополнительный конструктор для удобства
     public User(String username, String email, String password, String firstName, String lastName) {
         this.username = username;
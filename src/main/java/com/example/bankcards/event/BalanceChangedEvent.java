@@ -0,0 +1,15 @@
+package com.example.bankcards.event;
+
+import java.math.BigDecimal;
+
+/**
+ * Событие об изменении баланса карты пользователя.
+ * Номер карты передается зашифрованным: расшифровка выполняется только при наличии подписчиков.
+ */
+public record BalanceChangedEvent(
+        String username,
+        Long cardId,
+        String encryptedCardNumber,
+        BigDecimal balance,
+        String cardholderName
+) {}
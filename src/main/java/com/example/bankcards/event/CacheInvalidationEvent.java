@@ -0,0 +1,20 @@
+package com.example.bankcards.event;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Инвалидация кешей, полученная от другого узла.
+ * userRevocations — ID пользователей и время отзыва их access-токенов на узле-источнике (мс).
+ * При {@code all = true} (переподключение к БД, переполнение очереди) кеши очищаются полностью.
+ */
+public record CacheInvalidationEvent(
+        Set<Long> cardIds,
+        Map<Long, Long> userRevocations,
+        boolean all
+) {
+
+    public static CacheInvalidationEvent flushAll() {
+        return new CacheInvalidationEvent(Set.of(), Map.of(), true);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.bankcards.event;
+
+import java.time.LocalDate;
+
+/**
+ * Событие о скором истечении срока действия карты
+ */
+public record CardExpiringEvent(
+        Long cardId,
+        Long userId,
+        String email,
+        String maskedCardNumber,
+        LocalDate expiryDate
+) {}
@@ -0,0 +1,15 @@
+package com.example.bankcards.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие outbox, доставляемое получателям внутри JVM
+ */
+public record OutboxMessage(
+        Long id,
+        String aggregateType,
+        Long aggregateId,
+        String eventType,
+        String payload,
+        LocalDateTime createdAt
+) {}
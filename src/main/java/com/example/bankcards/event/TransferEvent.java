@@ -0,0 +1,19 @@
+package com.example.bankcards.event;
+
+import com.example.bankcards.entity.enums.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Содержимое события об изменении состояния перевода
+ */
+public record TransferEvent(
+        Long transactionId,
+        Long fromCardId,
+        Long toCardId,
+        BigDecimal amount,
+        TransactionStatus status,
+        LocalDateTime transactionDate,
+        LocalDateTime completedAt
+) {}
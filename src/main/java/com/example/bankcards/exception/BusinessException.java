@@ -0,0 +1,16 @@
+package com.example.bankcards.exception;
+
+/**
+ * Базовое исключение бизнес-ошибок, которые обрабатываются {@code GlobalExceptionHandler} как 4xx/503.
+ * <p>
+ * Стек вызовов не заполняется, а подавленные исключения не накапливаются: место возникновения
+ * ошибки однозначно определяется сообщением, а заполнение стека — основная цена исключения на
+ * часто повторяющихся отказах. Экземпляры с постоянным сообщением можно создавать заранее и
+ * выбрасывать повторно
+ */
+public abstract class BusinessException extends RuntimeException {
+
+    protected BusinessException(String message) {
+        super(message, null, false, false);
+    }
+}
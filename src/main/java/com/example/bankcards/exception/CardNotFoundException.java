@@ -3,7 +3,7 @@ package com.example.bankcards.exception;
 /**
  * Исключение, выбрасываемое при отсутствии карты
  */
-public class CardNotFoundException extends RuntimeException {
+public class CardNotFoundException extends BusinessException {
     public CardNotFoundException(String message) {
         super(message);
     }
@@ -3,7 +3,7 @@ package com.example.bankcards.exception;
 /**
  * Исключение, выбрасываемое при попытке создать карту с уже существующим номером
  */
-public class DuplicateCardNumberException extends RuntimeException {
+public class DuplicateCardNumberException extends BusinessException {
     public DuplicateCardNumberException(String message) {
         super(message);
     }
@@ -0,0 +1,20 @@
+package com.example.bankcards.exception;
+
+import org.springframework.security.access.AccessDeniedException;
+
+/**
+ * Отказ в доступе к чужим картам и транзакциям, обнаруженный в сервисах.
+ * Наследует {@link AccessDeniedException}, чтобы обрабатываться как прочие отказы Spring Security,
+ * но, как и {@link BusinessException}, не заполняет стек вызовов
+ */
+public class ForbiddenOperationException extends AccessDeniedException {
+
+    public ForbiddenOperationException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.bankcards.exception;
+
+/**
+ * Исключение, выбрасываемое при исчерпании пула хеширования паролей
+ */
+public class HashingCapacityExceededException extends BusinessException {
+    public HashingCapacityExceededException(String message) {
+        super(message);
+    }
+}
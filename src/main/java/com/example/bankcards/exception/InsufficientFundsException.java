@@ -3,7 +3,7 @@ package com.example.bankcards.exception;
 /**
  * Исключение, выбрасываемое при недостатке средств на карте
  */
-public class InsufficientFundsException extends RuntimeException {
+public class InsufficientFundsException extends BusinessException {
     public InsufficientFundsException(String message) {
         super(message);
     }
@@ -0,0 +1,10 @@
+package com.example.bankcards.exception;
+
+/**
+ * Исключение, выбрасываемое при некорректном курсоре постраничной выборки
+ */
+public class InvalidCursorException extends BusinessException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
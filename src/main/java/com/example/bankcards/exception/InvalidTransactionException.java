@@ -3,7 +3,7 @@ package com.example.bankcards.exception;
 /**
  * Исключение, выбрасываемое при некорректной транзакции
  */
-public class InvalidTransactionException extends RuntimeException {
+public class InvalidTransactionException extends BusinessException {
     public InvalidTransactionException(String message) {
         super(message);
     }
@@ -3,7 +3,7 @@ package com.example.bankcards.exception;
 /**
  * Исключение, выбрасываемое при отсутствии транзакции
  */
-public class TransactionNotFoundException extends RuntimeException {
+public class TransactionNotFoundException extends BusinessException {
     public TransactionNotFoundException(String message) {
         super(message);
     }
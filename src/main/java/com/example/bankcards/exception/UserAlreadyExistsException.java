@@ -3,7 +3,7 @@ package com.example.bankcards.exception;
 /**
  * Исключение при попытке создать пользователя с уже существующим username или email
  */
-public class UserAlreadyExistsException extends RuntimeException {
+public class UserAlreadyExistsException extends BusinessException {
     public UserAlreadyExistsException(String message) {
         super(message);
     }
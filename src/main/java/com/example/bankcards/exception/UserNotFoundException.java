@@ -3,7 +3,7 @@ package com.example.bankcards.exception;
 /**
  * Исключение при отсутствии пользователя
  */
-public class UserNotFoundException extends RuntimeException {
+public class UserNotFoundException extends BusinessException {
     public UserNotFoundException(String message) {
         super(message);
     }
@@ -2,23 +2,32 @@ package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.enums.CardStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий для работы с банковскими картами
  */
 @Repository
-public interface CardRepository extends JpaRepository<Card, Long> {
+public interface CardRepository extends JpaRepository<Card, Long>, JpaSpecificationExecutor<Card> {
 
     /**
      * Поиск карт пользователя с пагинацией
@@ -43,7 +52,7 @@ public interface CardRepository extends JpaRepository<Card, Long> {
     /**
      * Поиск активных карт пользователя
      */
-    @Query("SELECT c FROM Card c WHERE c.user.id = :userId AND c.status = 'ACTIVE' AND c.expiryDate > CURRENT_DATE")
+    @Query("SELECT c FROM Card c WHERE c.user.id = :userId AND c.status = 'ACTIVE'")
     List<Card> findActiveCardsByUserId(@Param("userId") Long userId);
 
     /**
@@ -66,6 +75,20 @@ public interface CardRepository extends JpaRepository<Card, Long> {
      */
     long countByUserId(Long userId);
 
+    /**
+     * Версия карты для ETag и владелец, без загрузки сущности
+     */
+    @Query("SELECT c.id AS id, c.version AS version, u.username AS ownerUsername " +
+           "FROM Card c JOIN c.user u WHERE c.id = :cardId")
+    Optional<CardVersionView> findVersionById(@Param("cardId") Long cardId);
+
+    /**
+     * Версия набора карт пользователя для ETag: количество, сумма ID и сумма версий
+     */
+    @Query("SELECT COUNT(c) AS count, COALESCE(SUM(c.id), 0) AS idSum, COALESCE(SUM(c.version), 0) AS versionSum " +
+           "FROM Card c WHERE c.user.username = :username")
+    CardSetVersionView findCardSetVersion(@Param("username") String username);
+
     /**
      * Подсчет активных карт у пользователя
      */
@@ -73,10 +96,36 @@ public interface CardRepository extends JpaRepository<Card, Long> {
     long countActiveCardsByUserId(@Param("userId") Long userId);
 
     /**
-     * Поиск карт с истекающим сроком действия
+     * Попытка взять advisory-блокировку до конца текущей транзакции.
+     * Возвращает false, если блокировку держит другой узел
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext(:key))", nativeQuery = true)
+    boolean tryAdvisoryLock(@Param("key") String key);
+
+    /**
+     * Потоковая выборка активных карт с истекающим сроком действия вместе с владельцами
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c FROM Card c JOIN FETCH c.user " +
+           "WHERE c.expiryDate BETWEEN :startDate AND :endDate AND c.status = 'ACTIVE' ORDER BY c.id")
+    Stream<Card> streamCardsExpiringBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    /**
+     * Порция ID активных карт с истекшим сроком действия (keyset-пагинация по ID)
+     */
+    @Query("SELECT c.id FROM Card c WHERE c.status = 'ACTIVE' AND c.expiryDate < :today AND c.id > :afterId ORDER BY c.id")
+    List<Long> findExpiredActiveCardIds(@Param("today") LocalDate today, @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Перевод порции карт с истекшим сроком действия в статус EXPIRED
      */
-    @Query("SELECT c FROM Card c WHERE c.expiryDate BETWEEN :startDate AND :endDate AND c.status = 'ACTIVE'")
-    List<Card> findCardsExpiringBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    @Modifying
+    @Query("UPDATE Card c SET c.status = 'EXPIRED', c.updatedAt = :now, c.version = c.version + 1 " +
+           "WHERE c.id IN :ids AND c.status = 'ACTIVE' AND c.expiryDate < :today")
+    int expireCards(@Param("ids") Collection<Long> ids, @Param("today") LocalDate today, @Param("now") LocalDateTime now);
 
     /**
      * Поиск карт с балансом больше указанной суммы
@@ -85,34 +134,46 @@ public interface CardRepository extends JpaRepository<Card, Long> {
     List<Card> findByUserIdAndBalanceGreaterThanEqual(@Param("userId") Long userId, @Param("minBalance") BigDecimal minBalance);
 
     /**
-     * Поиск всех карт с фильтрацией по владельцу карты (для поиска)
+     * Проверка существования карты по номеру
      */
-    @Query("SELECT c FROM Card c WHERE c.user.id = :userId AND " +
-           "(LOWER(c.cardHolderName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "c.cardNumber LIKE CONCAT('%', :search, '%'))")
-    Page<Card> findByUserIdAndSearch(@Param("userId") Long userId, @Param("search") String search, Pageable pageable);
+    boolean existsByCardNumber(String cardNumber);
 
     /**
-     * Административный поиск карт по различным критериям
+     * Проверка существования карты по HMAC номера
      */
-    @Query("SELECT c FROM Card c WHERE " +
-           "(:status IS NULL OR c.status = :status) AND " +
-           "(:userId IS NULL OR c.user.id = :userId) AND " +
-           "(:search IS NULL OR LOWER(c.cardHolderName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "c.cardNumber LIKE CONCAT('%', :search, '%'))")
-    Page<Card> findCardsWithFilters(@Param("status") CardStatus status, 
-                                   @Param("userId") Long userId, 
-                                   @Param("search") String search, 
-                                   Pageable pageable);
+    boolean existsByCardNumberHash(String cardNumberHash);
 
     /**
-     * Проверка существования карты по номеру
+     * Пакетная проверка дубликатов: возвращает уже существующие HMAC номеров из переданного набора
      */
-    boolean existsByCardNumber(String cardNumber);
+    @Query("SELECT c.cardNumberHash FROM Card c WHERE c.cardNumberHash IN :hashes")
+    Set<String> findExistingCardNumberHashes(@Param("hashes") Collection<String> hashes);
 
     /**
      * Получение общего баланса всех активных карт пользователя
      */
     @Query("SELECT COALESCE(SUM(c.balance), 0) FROM Card c WHERE c.user.id = :userId AND c.status = 'ACTIVE'")
     BigDecimal getTotalBalanceByUserId(@Param("userId") Long userId);
+
+    /**
+     * Проекция версии карты
+     */
+    interface CardVersionView {
+        Long getId();
+
+        Long getVersion();
+
+        String getOwnerUsername();
+    }
+
+    /**
+     * Проекция версии набора карт пользователя
+     */
+    interface CardSetVersionView {
+        long getCount();
+
+        long getIdSum();
+
+        long getVersionSum();
+    }
 }
@@ -0,0 +1,59 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.enums.CardStatus;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Locale;
+
+/**
+ * Условия административного поиска карт.
+ * <p>
+ * Каждое условие добавляется в запрос только при заданном фильтре, поэтому план строится
+ * по фактическим предикатам, а не по обобщенному {@code :x IS NULL OR ...}.
+ */
+public final class CardSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private CardSpecifications() {
+    }
+
+    public static Specification<Card> hasStatus(CardStatus status) {
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Card> ownedBy(Long userId) {
+        return (root, query, cb) -> cb.equal(root.get("user").get("id"), userId);
+    }
+
+    /**
+     * Подстрока имени держателя; сравнение с нормализованной колонкой использует триграммный индекс
+     */
+    public static Specification<Card> holderNameContains(String holderName) {
+        String pattern = "%" + escapeLike(normalizeHolderName(holderName)) + "%";
+        return (root, query, cb) -> cb.like(root.get("cardHolderNameNormalized"), pattern, LIKE_ESCAPE);
+    }
+
+    public static Specification<Card> lastFourEquals(String lastFour) {
+        return (root, query, cb) -> cb.equal(root.get("cardLastFour"), lastFour);
+    }
+
+    /**
+     * Нормализация, совпадающая с выражением вычисляемой колонки card_holder_name_normalized
+     */
+    static String normalizeHolderName(String holderName) {
+        return holderName.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
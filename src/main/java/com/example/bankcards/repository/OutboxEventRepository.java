@@ -0,0 +1,63 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Репозиторий для работы с событиями outbox
+ */
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Попытка захватить роль релея до конца текущей транзакции (advisory-блокировка по ключу).
+     * Возвращает false, если релеем в этот момент работает другой узел
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext(:key))", nativeQuery = true)
+    boolean tryRelayLock(@Param("key") String key);
+
+    /**
+     * Порция неотправленных событий в порядке записи.
+     * Строки блокируются с SKIP LOCKED на случай ручной обработки вне релея.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = AvailableSettings.JAKARTA_LOCK_TIMEOUT, value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.publishedAt IS NULL ORDER BY e.id")
+    List<OutboxEvent> findUnpublished(Pageable pageable);
+
+    /**
+     * Проверка, записано ли уже событие заданного типа для агрегата
+     */
+    boolean existsByAggregateTypeAndAggregateIdAndEventType(String aggregateType, Long aggregateId, String eventType);
+
+    /**
+     * Количество неотправленных событий
+     */
+    long countByPublishedAtIsNull();
+
+    /**
+     * Время создания самого старого неотправленного события
+     */
+    @Query("SELECT MIN(e.createdAt) FROM OutboxEvent e WHERE e.publishedAt IS NULL")
+    LocalDateTime findOldestUnpublishedCreatedAt();
+
+    /**
+     * Удаление отправленных событий старше указанного времени
+     */
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
@@ -2,22 +2,31 @@ package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Transaction;
 import com.example.bankcards.entity.enums.TransactionStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий для работы с транзакциями
  */
 @Repository
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, JpaSpecificationExecutor<Transaction> {
 
     /**
      * История переводов пользователя (входящие и исходящие)
@@ -31,6 +40,20 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     @Query("SELECT t FROM Transaction t WHERE t.fromCard.id = :cardId OR t.toCard.id = :cardId ORDER BY t.transactionDate DESC")
     Page<Transaction> findByCardId(@Param("cardId") Long cardId, Pageable pageable);
 
+    /**
+     * Потоковое чтение всех переводов карты для выгрузки выписки.
+     * Использует серверный курсор (fetch size), поэтому должен вызываться внутри транзакции,
+     * а полученный поток необходимо закрыть.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.fromCard JOIN FETCH t.toCard " +
+           "WHERE t.fromCard.id = :cardId OR t.toCard.id = :cardId ORDER BY t.transactionDate DESC, t.id DESC")
+    Stream<Transaction> streamByCardId(@Param("cardId") Long cardId);
+
     /**
      * Исходящие переводы карты
      */
@@ -100,31 +123,37 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
                                          @Param("endDate") LocalDateTime endDate);
 
     /**
-     * Поиск незавершенных транзакций (для обработки)
+     * Поиск незавершенных транзакций (для обработки).
+     * Строки блокируются с SKIP LOCKED: строки, уже захваченные другим узлом, пропускаются.
      */
-    List<Transaction> findByStatusAndTransactionDateBefore(TransactionStatus status, LocalDateTime dateTime);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = AvailableSettings.JAKARTA_LOCK_TIMEOUT, value = "-2"))
+    List<Transaction> findByStatusAndTransactionDateBefore(TransactionStatus status, LocalDateTime dateTime, Pageable pageable);
 
     /**
-     * Внутренние переводы пользователя (между своими картами)
+     * Завершение переводов порции с ошибкой. Диапазон дат порции в условии ограничивает UPDATE
+     * секциями ее месяцев: обновление сущности по одному id проверяло бы все секции таблицы
      */
-    @Query("SELECT t FROM Transaction t WHERE t.fromCard.user.id = :userId AND t.toCard.user.id = :userId " +
-           "ORDER BY t.transactionDate DESC")
-    Page<Transaction> findInternalTransfersByUserId(@Param("userId") Long userId, Pageable pageable);
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Transaction t SET t.status = 'FAILED', t.completedAt = :completedAt, t.errorMessage = :errorMessage " +
+           "WHERE t.id IN :ids AND t.transactionDate BETWEEN :fromDate AND :toDate")
+    int markAllAsFailed(@Param("ids") List<Long> ids,
+                        @Param("fromDate") LocalDateTime fromDate,
+                        @Param("toDate") LocalDateTime toDate,
+                        @Param("errorMessage") String errorMessage,
+                        @Param("completedAt") LocalDateTime completedAt);
 
     /**
-     * Административный поиск всех транзакций с фильтрами
+     * Количество незавершенных транзакций, созданных раньше указанного времени
      */
-    @Query("SELECT t FROM Transaction t WHERE " +
-           "(:status IS NULL OR t.status = :status) AND " +
-           "(:userId IS NULL OR t.fromCard.user.id = :userId OR t.toCard.user.id = :userId) AND " +
-           "(:startDate IS NULL OR t.transactionDate >= :startDate) AND " +
-           "(:endDate IS NULL OR t.transactionDate <= :endDate) " +
+    long countByStatusAndTransactionDateBefore(TransactionStatus status, LocalDateTime dateTime);
+
+    /**
+     * Внутренние переводы пользователя (между своими картами)
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.fromCard.user.id = :userId AND t.toCard.user.id = :userId " +
            "ORDER BY t.transactionDate DESC")
-    Page<Transaction> findTransactionsWithFilters(@Param("status") TransactionStatus status,
-                                                 @Param("userId") Long userId,
-                                                 @Param("startDate") LocalDateTime startDate,
-                                                 @Param("endDate") LocalDateTime endDate,
-                                                 Pageable pageable);
+    Page<Transaction> findInternalTransfersByUserId(@Param("userId") Long userId, Pageable pageable);
 
     /**
      * Последние N транзакций пользователя
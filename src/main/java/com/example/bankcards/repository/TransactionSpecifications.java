@@ -0,0 +1,87 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.enums.TransactionStatus;
+import com.example.bankcards.util.TransactionCursor;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Условия административного поиска транзакций.
+ * <p>
+ * Каждое условие добавляется в запрос только при заданном фильтре, поэтому план строится
+ * по фактическим предикатам, а не по обобщенному {@code :x IS NULL OR ...}.
+ */
+public final class TransactionSpecifications {
+
+    private TransactionSpecifications() {
+    }
+
+    public static Specification<Transaction> hasStatus(TransactionStatus status) {
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    /**
+     * Входящие и исходящие переводы карты
+     */
+    public static Specification<Transaction> involvesCard(Long cardId) {
+        return (root, query, cb) -> cb.or(
+                cb.equal(root.get("fromCard").get("id"), cardId),
+                cb.equal(root.get("toCard").get("id"), cardId));
+    }
+
+    /**
+     * Переводы с участием карт пользователя; карты выбираются подзапросом без соединения с cards
+     */
+    public static Specification<Transaction> involvesUser(Long userId) {
+        return (root, query, cb) -> {
+            Subquery<Long> cardIds = query.subquery(Long.class);
+            Root<Card> card = cardIds.from(Card.class);
+            cardIds.select(card.get("id")).where(cb.equal(card.get("user").get("id"), userId));
+            return cb.or(
+                    root.get("fromCard").get("id").in(cardIds),
+                    root.get("toCard").get("id").in(cardIds));
+        };
+    }
+
+    public static Specification<Transaction> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.<Long>get("id").in(ids);
+    }
+
+    public static Specification<Transaction> dateFrom(LocalDateTime from) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.<LocalDateTime>get("transactionDate"), from);
+    }
+
+    public static Specification<Transaction> dateBefore(LocalDateTime to) {
+        return (root, query, cb) -> cb.lessThan(root.<LocalDateTime>get("transactionDate"), to);
+    }
+
+    public static Specification<Transaction> amountAtLeast(BigDecimal minAmount) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.<BigDecimal>get("amount"), minAmount);
+    }
+
+    public static Specification<Transaction> amountAtMost(BigDecimal maxAmount) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.<BigDecimal>get("amount"), maxAmount);
+    }
+
+    /**
+     * Строки после курсора в порядке (transactionDate DESC, id DESC).
+     * Условие {@code transactionDate <= курсор} дублирует OR отдельным AND: по нему планировщик
+     * начинает диапазон индекса (и отсекает партиции) от курсора, а не от начала
+     */
+    public static Specification<Transaction> after(TransactionCursor cursor) {
+        return (root, query, cb) -> cb.and(
+                cb.lessThanOrEqualTo(root.<LocalDateTime>get("transactionDate"), cursor.transactionDate()),
+                cb.or(
+                        cb.lessThan(root.<LocalDateTime>get("transactionDate"), cursor.transactionDate()),
+                        cb.and(
+                                cb.equal(root.get("transactionDate"), cursor.transactionDate()),
+                                cb.lessThan(root.<Long>get("id"), cursor.id()))));
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -35,20 +39,51 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
 
     /**
-     * Поиск пользователя по имени пользователя или email
+     * Поиск пользователя по имени пользователя или email вместе с ролями (для аутентификации)
      */
+    @EntityGraph(attributePaths = "roles")
     @Query("SELECT u FROM User u WHERE u.username = :login OR u.email = :login")
     Optional<User> findByUsernameOrEmail(@Param("login") String login);
 
+    /**
+     * Проверка наличия роли у пользователя
+     */
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM user_roles WHERE user_id = :userId AND role_id = :roleId)",
+            nativeQuery = true)
+    boolean existsUserRole(@Param("userId") Long userId, @Param("roleId") Long roleId);
+
+    /**
+     * Обновление хеша пароля пользователя
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password, u.updatedAt = CURRENT_TIMESTAMP, u.version = u.version + 1 " +
+           "WHERE u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
+
     /**
      * Поиск активных пользователей
      */
     @Query("SELECT u FROM User u WHERE u.enabled = true")
     java.util.List<User> findAllActiveUsers();
 
+    /**
+     * Пакетное получение ID пользователей по именам (без загрузки сущностей и ролей)
+     */
+    @Query("SELECT u.id AS id, u.username AS username FROM User u WHERE u.username IN :usernames")
+    List<UserIdView> findIdsByUsernameIn(@Param("usernames") Collection<String> usernames);
+
     /**
      * Подсчет количества карт у пользователя
      */
     @Query("SELECT COUNT(c) FROM Card c WHERE c.user.id = :userId")
     long countCardsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Проекция ID и имени пользователя
+     */
+    interface UserIdView {
+        Long getId();
+
+        String getUsername();
+    }
 }
@@ -0,0 +1,105 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.HashingCapacityExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Кодировщик паролей, выполняющий хеширование в отдельном ограниченном пуле потоков.
+ * <p>
+ * Всплеск входов занимает не больше {@code threads} ядер; при заполненной очереди или
+ * превышении времени ожидания выбрасывается {@link HashingCapacityExceededException}.
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    // Отказ повторяется на каждом входе во время всплеска, поэтому исключение создается один раз
+    private static final HashingCapacityExceededException CAPACITY_EXCEEDED =
+            new HashingCapacityExceededException("Сервис временно перегружен, повторите попытку позже");
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutNanos;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, Duration timeout) {
+        this.delegate = delegate;
+        this.timeoutNanos = timeout.toNanos();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Пул потоков хеширования (для метрик)
+     */
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Остановка пула хеширования
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("Очередь хеширования паролей заполнена ({} задач)", executor.getQueue().size());
+            throw CAPACITY_EXCEEDED;
+        }
+
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("Превышено время ожидания хеширования пароля");
+            throw CAPACITY_EXCEEDED;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HashingCapacityExceededException("Хеширование пароля прервано");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Ошибка хеширования пароля", e.getCause());
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.example.bankcards.security;
 
-import com.example.bankcards.service.CustomUserDetailsService;
 import com.example.bankcards.service.JwtService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -20,7 +20,8 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 
 /**
- * Фильтр для обработки JWT токенов
+ * Фильтр для обработки JWT токенов. Пользователь и роли берутся из claims токена,
+ * отзыв проверяется по {@link TokenRevocationRegistry} в памяти — без обращения к БД
  */
 @Component
 @RequiredArgsConstructor
@@ -28,7 +29,7 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final CustomUserDetailsService userDetailsService;
+    private final TokenRevocationRegistry revocationRegistry;
 
     @Override
     protected void doFilterInternal(
@@ -53,23 +54,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         jwt = authHeader.substring(7);
         try {
-            username = jwtService.extractUsername(jwt);
+            Claims claims = jwtService.parseToken(jwt);
+            username = claims.getSubject();
 
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
-            if (username != null && authentication == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            if (username != null && authentication == null
+                    && !revocationRegistry.isRevoked(claims.getId(), username, jwtService.getIssuedAt(claims))) {
+                UserDetails userDetails = jwtService.toUserDetails(claims);
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        userDetails,
+                        null,
+                        userDetails.getAuthorities()
+                );
 
-                if (jwtService.isTokenValid(jwt, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
-                    );
-
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                }
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
             }
         } catch (Exception e) {
             log.warn("Ошибка обработки JWT токена: {}", e.getMessage());
@@ -0,0 +1,221 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.JwtSigningProperties;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Набор ключей подписи и проверки JWT, загружаемый один раз при запуске.
+ * <p>
+ * В асимметричных режимах токен подписывается активным ключом с заголовком {@code kid},
+ * а проверяется ключом набора с тем же {@code kid}. Ротация: новый ключ добавляется в набор
+ * и становится активным, прежний остается в наборе на время жизни выданных им токенов.
+ */
+@Component
+@Slf4j
+public class JwtKeyRing {
+
+    public static final String HS256 = "HS256";
+    public static final String ES256 = "ES256";
+    public static final String EDDSA = "EdDSA";
+
+    private final String algorithm;
+    private final String activeKeyId;
+    private final Key signingKey;
+    private final Map<String, Key> verificationKeys;
+    private final String jwksJson;
+    private final JwtParser parser;
+
+    public JwtKeyRing(JwtSigningProperties properties,
+                      @Value("${app.jwt.secret:}") String secret) {
+        this.algorithm = normalize(properties.algorithm());
+
+        if (HS256.equals(algorithm)) {
+            if (!StringUtils.hasText(secret)) {
+                throw new IllegalStateException("Не задан секрет подписи JWT (app.jwt.secret, переменная JWT_SECRET)");
+            }
+            this.activeKeyId = null;
+            this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+            this.verificationKeys = Map.of();
+            this.jwksJson = "{\"keys\":[]}";
+        } else {
+            Map<String, PublicKey> publicKeys = new LinkedHashMap<>();
+            PrivateKey privateKey = null;
+            String activeId = properties.activeKeyId();
+
+            if (properties.keys().isEmpty()) {
+                KeyPair keyPair = generateKeyPair(algorithm);
+                activeId = "ephemeral-" + UUID.randomUUID();
+                publicKeys.put(activeId, keyPair.getPublic());
+                privateKey = keyPair.getPrivate();
+                log.warn("Ключи {} не заданы: сгенерирован временный ключ {}, токены этого узла не проверяются другими узлами",
+                        algorithm, activeId);
+            } else {
+                for (JwtSigningProperties.Key key : properties.keys()) {
+                    publicKeys.put(key.id(), readPublicKey(key.publicKey(), algorithm));
+                    if (key.id().equals(activeId) && key.privateKey() != null) {
+                        privateKey = readPrivateKey(key.privateKey(), algorithm);
+                    }
+                }
+                if (!publicKeys.containsKey(activeId)) {
+                    throw new IllegalStateException("Активный ключ JWT '" + activeId + "' отсутствует в наборе");
+                }
+                if (privateKey == null) {
+                    log.info("Приватный ключ JWT не задан: узел только проверяет токены");
+                }
+            }
+
+            this.activeKeyId = activeId;
+            this.signingKey = privateKey;
+            this.verificationKeys = Map.copyOf(publicKeys);
+            this.jwksJson = publicKeys.entrySet().stream()
+                    .map(entry -> Jwks.json(Jwks.builder().key(entry.getValue())
+                            .id(entry.getKey())
+                            .algorithm(algorithm)
+                            .publicKeyUse("sig")
+                            .build()))
+                    .collect(Collectors.joining(",", "{\"keys\":[", "]}"));
+        }
+
+        this.parser = Jwts.parser().keyLocator(new LocatorAdapter<Key>() {
+            @Override
+            protected Key locate(JwsHeader header) {
+                return verificationKey(header.getKeyId());
+            }
+        }).build();
+
+        log.info("Подпись JWT: {}, активный ключ: {}, ключей проверки: {}",
+                algorithm, activeKeyId, Math.max(1, verificationKeys.size()));
+    }
+
+    /**
+     * Подпись токена активным ключом
+     */
+    public String sign(JwtBuilder builder) {
+        if (signingKey == null) {
+            throw new IllegalStateException("Узел не может выпускать токены: нет приватного ключа " + activeKeyId);
+        }
+        if (activeKeyId != null) {
+            builder.header().keyId(activeKeyId);
+        }
+        return builder.signWith(signingKey).compact();
+    }
+
+    /**
+     * Разборщик токенов с выбором ключа по {@code kid}; потокобезопасен и переиспользуется
+     */
+    public JwtParser parser() {
+        return parser;
+    }
+
+    /**
+     * Публичные ключи набора в формате JWKS (пустой набор в режиме HS256)
+     */
+    public String jwksJson() {
+        return jwksJson;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    private Key verificationKey(String keyId) {
+        if (HS256.equals(algorithm)) {
+            return signingKey;
+        }
+        Key key = keyId != null ? verificationKeys.get(keyId) : null;
+        if (key == null) {
+            throw new UnsupportedJwtException("Неизвестный ключ подписи токена: " + keyId);
+        }
+        return key;
+    }
+
+    private static String normalize(String algorithm) {
+        return switch (algorithm.toUpperCase(Locale.ROOT)) {
+            case "HS256" -> HS256;
+            case "ES256" -> ES256;
+            case "EDDSA", "ED25519" -> EDDSA;
+            default -> throw new IllegalStateException("Неподдерживаемый алгоритм подписи JWT: " + algorithm);
+        };
+    }
+
+    private static String keyFactoryAlgorithm(String algorithm) {
+        return ES256.equals(algorithm) ? "EC" : "Ed25519";
+    }
+
+    /**
+     * Генерация пары ключей для алгоритма (временный ключ, тесты и бенчмарки)
+     */
+    public static KeyPair generateKeyPair(String algorithm) {
+        try {
+            if (ES256.equals(algorithm)) {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+                return generator.generateKeyPair();
+            }
+            return KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Ошибка генерации ключей " + algorithm, e);
+        }
+    }
+
+    private static PublicKey readPublicKey(Resource resource, String algorithm) {
+        try {
+            return KeyFactory.getInstance(keyFactoryAlgorithm(algorithm))
+                    .generatePublic(new X509EncodedKeySpec(readPem(resource)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Некорректный публичный ключ JWT: " + resource, e);
+        }
+    }
+
+    private static PrivateKey readPrivateKey(Resource resource, String algorithm) {
+        try {
+            return KeyFactory.getInstance(keyFactoryAlgorithm(algorithm))
+                    .generatePrivate(new PKCS8EncodedKeySpec(readPem(resource)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Некорректный приватный ключ JWT: " + resource, e);
+        }
+    }
+
+    private static byte[] readPem(Resource resource) {
+        try (InputStream input = resource.getInputStream()) {
+            String pem = new String(input.readAllBytes(), StandardCharsets.US_ASCII);
+            String base64 = pem.replaceAll("-----[A-Z ]+-----", "");
+            return Base64.getMimeDecoder().decode(StringUtils.trimAllWhitespace(base64));
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать ключ JWT: " + resource, e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.bankcards.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Кратковременный кеш неудачных попыток входа.
+ * <p>
+ * Повтор той же пары логин/пароль в течение TTL отклоняется без BCrypt-проверки.
+ * Ключ — HMAC от пары со случайным ключом процесса, пароли в памяти не хранятся.
+ * Другой пароль проверяется как обычно, поэтому владелец учетной записи не блокируется.
+ */
+@Component
+public class LoginFailureCache {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final Cache<String, Boolean> failures;
+    private final SecretKey key;
+
+    public LoginFailureCache(MeterRegistry meterRegistry,
+                             @Value("${app.security.login.failure-cache-ttl:PT30S}") Duration ttl,
+                             @Value("${app.security.login.failure-cache-size:10000}") long maxSize) {
+        this.failures = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        try {
+            this.key = KeyGenerator.getInstance(HMAC_ALGORITHM).generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Алгоритм " + HMAC_ALGORITHM + " недоступен", e);
+        }
+        CaffeineCacheMetrics.monitor(meterRegistry, failures, "login-failures");
+    }
+
+    /**
+     * Проверка, что пара логин/пароль недавно не прошла аутентификацию
+     */
+    public boolean isRecentlyFailed(String login, String password) {
+        return failures.getIfPresent(digest(login, password)) != null;
+    }
+
+    /**
+     * Запоминание неудачной попытки входа
+     */
+    public void recordFailure(String login, String password) {
+        failures.put(digest(login, password), Boolean.TRUE);
+    }
+
+    private String digest(String login, String password) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            mac.update(login.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Ошибка вычисления HMAC", e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.RateLimitProperties;
+import com.example.bankcards.dto.response.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фильтр ограничения частоты запросов.
+ * Выполняется после {@link JwtAuthenticationFilter}: аутентифицированные клиенты различаются по имени
+ * пользователя, анонимные и маршруты с byIp (например, /api/auth) — по IP-адресу.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_RETRY_AFTER_NANOS = TimeUnit.HOURS.toNanos(1);
+    private static final ErrorResponse TOO_MANY_REQUESTS =
+            ErrorResponse.of(HttpStatus.TOO_MANY_REQUESTS, "Слишком много запросов, повторите позже");
+
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        RateLimitProperties.Route route = rateLimiter.findRoute(request.getMethod(), request.getServletPath());
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RateLimiter.Decision decision = rateLimiter.tryAcquire(route, clientKey(route, request));
+        if (decision.allowed()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        log.warn("Превышен лимит запросов маршрута {} для {} {}", route.name(), request.getMethod(), request.getRequestURI());
+        writeTooManyRequests(response, decision.retryAfterNanos());
+    }
+
+    private String clientKey(RateLimitProperties.Route route, HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (!route.byIp() && authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private void writeTooManyRequests(HttpServletResponse response, long retryAfterNanos) throws IOException {
+        long waitNanos = Math.min(retryAfterNanos, MAX_RETRY_AFTER_NANOS);
+        long retryAfterSeconds = Math.max(1, (waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), TOO_MANY_REQUESTS);
+    }
+}
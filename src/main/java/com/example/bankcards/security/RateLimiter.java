@@ -0,0 +1,99 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.RateLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр корзин токенов по маршрутам и клиентам
+ */
+@Component
+@Slf4j
+public class RateLimiter {
+
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejectedCounters = new ConcurrentHashMap<>();
+
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Результат проверки лимита
+     */
+    public record Decision(RateLimitProperties.Route route, long retryAfterNanos) {
+
+        public boolean allowed() {
+            return retryAfterNanos == 0;
+        }
+    }
+
+    /**
+     * Поиск первого маршрута, подходящего под запрос
+     */
+    public RateLimitProperties.Route findRoute(String method, String path) {
+        if (!properties.enabled()) {
+            return null;
+        }
+        List<RateLimitProperties.Route> routes = properties.routes();
+        for (RateLimitProperties.Route route : routes) {
+            if ((!StringUtils.hasText(route.method()) || route.method().equalsIgnoreCase(method))
+                    && pathMatcher.match(route.path(), path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Списание токена из корзины клиента для маршрута
+     */
+    public Decision tryAcquire(RateLimitProperties.Route route, String clientKey) {
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.computeIfAbsent(route.name() + '|' + clientKey,
+                key -> new TokenBucket(route.capacity(), route.refillPerSecond(), now));
+
+        long retryAfterNanos = bucket.tryConsume(now);
+        if (retryAfterNanos > 0) {
+            rejectedCounters.computeIfAbsent(route.name(), name -> Counter.builder("bankcards.ratelimit.rejected")
+                    .description("Количество запросов, отклоненных ограничением частоты")
+                    .tag("route", name)
+                    .register(meterRegistry)).increment();
+        }
+        return new Decision(route, retryAfterNanos);
+    }
+
+    /**
+     * Удаление заполненных корзин неактивных клиентов
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.cleanup-interval:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        long idleNanos = properties.idleTimeout().toNanos();
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.isIdle(now, idleNanos));
+        if (before != buckets.size()) {
+            log.debug("Удалено неактивных корзин ограничения частоты: {}", before - buckets.size());
+        }
+    }
+
+    /**
+     * Количество активных корзин
+     */
+    public int getBucketCount() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.bankcards.security;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Неблокирующая корзина токенов: состояние заменяется атомарно через CAS,
+ * пополнение вычисляется по прошедшему времени при каждом обращении.
+ */
+public class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final long capacity;
+    private final double refillPerNano;
+    private final AtomicReference<State> state;
+
+    public TokenBucket(long capacity, double refillPerSecond, long nowNanos) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / NANOS_PER_SECOND;
+        this.state = new AtomicReference<>(new State(capacity, nowNanos));
+    }
+
+    /**
+     * Попытка взять токен; возвращает 0 при успехе или время ожидания следующего токена в наносекундах
+     */
+    public long tryConsume(long nowNanos) {
+        while (true) {
+            State current = state.get();
+            double tokens = available(current, nowNanos);
+            if (tokens < 1) {
+                return refillPerNano > 0 ? (long) Math.ceil((1 - tokens) / refillPerNano) : Long.MAX_VALUE;
+            }
+            if (state.compareAndSet(current, new State(tokens - 1, nowNanos))) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Корзина полна и давно не использовалась — ее можно удалить без изменения поведения
+     */
+    public boolean isIdle(long nowNanos, long idleNanos) {
+        State current = state.get();
+        return nowNanos - current.updatedAt() > idleNanos && available(current, nowNanos) >= capacity;
+    }
+
+    private double available(State current, long nowNanos) {
+        long elapsed = Math.max(0, nowNanos - current.updatedAt());
+        return Math.min(capacity, current.tokens() + elapsed * refillPerNano);
+    }
+
+    private record State(double tokens, long updatedAt) {}
+}
@@ -0,0 +1,112 @@
+package com.example.bankcards.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр отозванных access-токенов в памяти.
+ * <p>
+ * Access-токен живет не дольше {@code app.jwt.expiration}, поэтому отзыв достаточно помнить
+ * одно окно жизни токена. Проверка на каждом запросе — один фильтр Блума: при отрицательном
+ * ответе обращения к точным наборам не нужно. Фильтры ротируются раз в окно (текущий и
+ * предыдущий), точные записи старше окна удаляются.
+ * <p>
+ * Отзыв хранится в памяти узла. Отзыв всех токенов пользователя передается другим узлам
+ * через {@code CacheInvalidationBus}, отзыв отдельного токена действует только на этом узле,
+ * refresh-токены отзываются в БД.
+ */
+@Component
+@Slf4j
+public class TokenRevocationRegistry {
+
+    private static final String TOKEN_PREFIX = "jti:";
+    private static final String USER_PREFIX = "user:";
+
+    private final long accessTokenTtlMillis;
+    private final int expectedRevocations;
+    private final double falsePositiveRate;
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<String, Long> revokedUsers = new ConcurrentHashMap<>();
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+
+    public TokenRevocationRegistry(@Value("${app.jwt.expiration:900000}") long accessTokenTtlMillis,
+                                   @Value("${app.jwt.revocation.expected-revocations:10000}") int expectedRevocations,
+                                   @Value("${app.jwt.revocation.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.accessTokenTtlMillis = accessTokenTtlMillis;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.current = new BloomFilter(expectedRevocations, falsePositiveRate);
+        this.previous = new BloomFilter(expectedRevocations, falsePositiveRate);
+    }
+
+    /**
+     * Отзыв одного access-токена до истечения его срока
+     */
+    public void revokeToken(String tokenId, Date expiresAt) {
+        revokedTokens.put(tokenId, expiresAt.getTime());
+        current.put(TOKEN_PREFIX + tokenId);
+    }
+
+    /**
+     * Отзыв всех access-токенов пользователя, выданных до текущего момента
+     */
+    public void revokeUser(String username) {
+        revokeUser(username, System.currentTimeMillis());
+    }
+
+    /**
+     * Отзыв всех access-токенов пользователя, выданных не позже revokedAtMillis.
+     * Более ранний отзыв не сдвигает назад уже записанный более поздний
+     */
+    public void revokeUser(String username, long revokedAtMillis) {
+        revokedUsers.merge(username, revokedAtMillis, Math::max);
+        current.put(USER_PREFIX + username);
+        log.info("Access-токены пользователя {} отозваны", username);
+    }
+
+    /**
+     * Проверка, что токен отозван. issuedAt — время выдачи с точностью до миллисекунды
+     * ({@code JwtService.getIssuedAt}): с секундным iat токен, выданный в ту же секунду после отзыва,
+     * считался бы отозванным
+     */
+    public boolean isRevoked(String tokenId, String username, Date issuedAt) {
+        if (tokenId != null && mightContain(TOKEN_PREFIX + tokenId) && revokedTokens.containsKey(tokenId)) {
+            return true;
+        }
+        if (mightContain(USER_PREFIX + username)) {
+            Long revokedAt = revokedUsers.get(username);
+            // У токенов без iat_ms время округлено до секунды вниз: токен той же секунды считается отозванным
+            return revokedAt != null && issuedAt.getTime() <= revokedAt;
+        }
+        return false;
+    }
+
+    /**
+     * Смена поколения фильтров и удаление записей, переживших окно жизни access-токена
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.expiration:900000}", initialDelayString = "${app.jwt.expiration:900000}")
+    public void rotate() {
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt < now);
+        revokedUsers.values().removeIf(revokedAt -> revokedAt + accessTokenTtlMillis < now);
+
+        // Оставшиеся записи переносятся в новый фильтр, чтобы пережить следующую ротацию
+        BloomFilter next = new BloomFilter(expectedRevocations, falsePositiveRate);
+        revokedTokens.keySet().forEach(tokenId -> next.put(TOKEN_PREFIX + tokenId));
+        revokedUsers.keySet().forEach(username -> next.put(USER_PREFIX + username));
+        previous = current;
+        current = next;
+        log.debug("Фильтр отзыва токенов ротирован, записей: {}", revokedTokens.size() + revokedUsers.size());
+    }
+
+    private boolean mightContain(String key) {
+        return current.mightContain(key) || previous.mightContain(key);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.event.OutboxMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Доставка событий outbox подписчикам внутри JVM через {@link ApplicationEventPublisher}
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.sink", havingValue = "listener", matchIfMissing = true)
+@RequiredArgsConstructor
+public class ApplicationEventOutboxSink implements OutboxEventSink {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void publish(List<OutboxMessage> messages) {
+        messages.forEach(eventPublisher::publishEvent);
+    }
+}
@@ -3,15 +3,20 @@ package com.example.bankcards.service;
 import com.example.bankcards.dto.response.AuthResponse;
 import com.example.bankcards.entity.enums.RoleName;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.security.LoginFailureCache;
+import com.example.bankcards.security.TokenRevocationRegistry;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -27,6 +32,9 @@ public class AuthService {
     private final JwtService jwtService;
     private final CustomUserDetailsService userDetailsService;
     private final AuthenticationManager authenticationManager;
+    private final LoginFailureCache loginFailureCache;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationRegistry revocationRegistry;
 
     /**
      * Регистрация нового пользователя
@@ -36,28 +44,68 @@ public class AuthService {
 
         User createdUser = userService.createUser(username, email, password, firstName, lastName, RoleName.ROLE_USER);
         UserDetails userDetails = userDetailsService.loadUserByUsername(createdUser.getUsername());
-        String token = jwtService.generateToken(userDetails);
+        AuthResponse response = buildAuthResponse(userDetails, refreshTokenService.issue(userDetails.getUsername()));
 
         log.info("Пользователь {} успешно зарегистрирован", username);
-        return new AuthResponse(token, jwtService.getExpirationTime());
+        return response;
     }
 
     /**
-     * Аутентификация пользователя
+     * Аутентификация пользователя; выполняется вне транзакции, чтобы BCrypt-проверка
+     * не удерживала соединение с БД
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AuthResponse authenticate(String login, String password) {
         log.info("Попытка входа пользователя: {}", login);
 
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(login, password)
-        );
+        if (loginFailureCache.isRecentlyFailed(login, password)) {
+            log.warn("Повтор недавно отклоненных учетных данных пользователя: {}", login);
+            throw new BadCredentialsException("Неверные учетные данные");
+        }
+
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(login, password)
+            );
+        } catch (BadCredentialsException e) {
+            loginFailureCache.recordFailure(login, password);
+            throw e;
+        }
 
         log.info("Call UDS");
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        String token = jwtService.generateToken(userDetails);
+        AuthResponse response = buildAuthResponse(userDetails, refreshTokenService.issue(userDetails.getUsername()));
 
         log.info("Пользователь {} успешно аутентифицирован", login);
-        return new AuthResponse(token, jwtService.getExpirationTime());
+        return response;
+    }
+
+    /**
+     * Обмен refresh-токена на новую пару токенов; роли перечитываются из БД
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public AuthResponse refresh(String refreshToken) {
+        RefreshTokenService.IssuedToken rotated = refreshTokenService.rotate(refreshToken);
+        UserDetails userDetails = userDetailsService.loadUserByUsername(rotated.username());
+        return buildAuthResponse(userDetails, rotated.token());
+    }
+
+    /**
+     * Выход: отзыв семейства refresh-токена и, если передан, текущего access-токена
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void logout(String refreshToken, String accessToken) {
+        refreshTokenService.revoke(refreshToken);
+
+        if (accessToken != null) {
+            try {
+                Claims claims = jwtService.parseToken(accessToken);
+                revocationRegistry.revokeToken(claims.getId(), claims.getExpiration());
+            } catch (JwtException e) {
+                log.debug("Access-токен при выходе недействителен: {}", e.getMessage());
+            }
+        }
     }
 
     /**
@@ -66,7 +114,11 @@ public class AuthService {
     public boolean validateToken(String token, String username) {
         try {
             UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            return jwtService.isTokenValid(token, userDetails);
+            if (!jwtService.isTokenValid(token, userDetails)) {
+                return false;
+            }
+            Claims claims = jwtService.parseToken(token);
+            return !revocationRegistry.isRevoked(claims.getId(), username, jwtService.getIssuedAt(claims));
         } catch (Exception e) {
             log.warn("Ошибка валидации токена для пользователя {}: {}", username, e.getMessage());
             return false;
@@ -84,4 +136,13 @@ public class AuthService {
             return null;
         }
     }
+
+    private AuthResponse buildAuthResponse(UserDetails userDetails, String refreshToken) {
+        return new AuthResponse(
+                jwtService.generateToken(userDetails),
+                jwtService.getExpirationTime(),
+                refreshToken,
+                refreshTokenService.getRefreshTokenTtl().toMillis()
+        );
+    }
 }
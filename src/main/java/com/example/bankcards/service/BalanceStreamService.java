@@ -0,0 +1,205 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.response.BalanceResponse;
+import com.example.bankcards.event.BalanceChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Рассылка изменений балансов подписчикам SSE.
+ * <p>
+ * У каждого подписчика ограниченный буфер: при переполнении отбрасывается самое старое изменение,
+ * поэтому медленный клиент не задерживает остальных. Отправка (включая расшифровку номера карты)
+ * выполняется на отдельном пуле, для каждого подписчика одновременно работает не более одной задачи отправки.
+ */
+@Service
+@Slf4j
+public class BalanceStreamService {
+
+    private static final String BALANCE_EVENT = "balance";
+    private static final String HEARTBEAT_COMMENT = "heartbeat";
+
+    private final EncryptionService encryptionService;
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService dispatchExecutor;
+    private final Counter droppedCounter;
+    private final long timeoutMillis;
+    private final int bufferSize;
+
+    public BalanceStreamService(EncryptionService encryptionService,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.balance-stream.timeout:1800000}") long timeoutMillis,
+                                @Value("${app.balance-stream.buffer-size:32}") int bufferSize,
+                                @Value("${app.balance-stream.dispatch-threads:2}") int dispatchThreads) {
+        this.encryptionService = encryptionService;
+        this.timeoutMillis = timeoutMillis;
+        this.bufferSize = bufferSize;
+        this.dispatchExecutor = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("balance-stream-"));
+
+        Gauge.builder("bankcards.balance.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Количество активных подписчиков SSE на изменения балансов")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("bankcards.balance.stream.dropped")
+                .description("Количество изменений балансов, отброшенных из-за переполнения буфера")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Подписка пользователя на изменения балансов его карт
+     */
+    public SseEmitter subscribe(String username) {
+        SseEmitter emitter = createEmitter();
+        Subscriber subscriber = new Subscriber(username, emitter, new ArrayBlockingQueue<>(bufferSize));
+
+        // Добавление внутри compute: иначе unsubscribe может удалить опустевший набор между
+        // computeIfAbsent и add, и подписчик попадет в набор, которого уже нет в карте
+        subscribers.compute(username, (key, set) -> {
+            Set<Subscriber> userSubscribers = set != null ? set : ConcurrentHashMap.newKeySet();
+            userSubscribers.add(subscriber);
+            return userSubscribers;
+        });
+        subscriberCount.incrementAndGet();
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        log.debug("Пользователь: {} подписан на изменения балансов", username);
+        return emitter;
+    }
+
+    /**
+     * Рассылка изменения баланса после фиксации перевода
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBalanceChanged(BalanceChangedEvent event) {
+        Set<Subscriber> userSubscribers = subscribers.get(event.username());
+        if (userSubscribers == null) {
+            return;
+        }
+
+        for (Subscriber subscriber : userSubscribers) {
+            while (!subscriber.buffer().offer(event)) {
+                if (subscriber.buffer().poll() != null) {
+                    droppedCounter.increment();
+                }
+            }
+            scheduleDispatch(subscriber);
+        }
+    }
+
+    /**
+     * Периодический heartbeat, чтобы прокси не закрывали простаивающие соединения
+     */
+    @Scheduled(fixedRateString = "${app.balance-stream.heartbeat-interval:15000}")
+    public void sendHeartbeat() {
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber -> {
+            try {
+                subscriber.emitter().send(SseEmitter.event().comment(HEARTBEAT_COMMENT));
+            } catch (IOException | IllegalStateException e) {
+                subscriber.emitter().completeWithError(e);
+                unsubscribe(subscriber);
+            }
+        }));
+    }
+
+    /**
+     * Количество активных подписчиков
+     */
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatchExecutor.shutdownNow();
+        subscribers.values().forEach(userSubscribers ->
+                userSubscribers.forEach(subscriber -> subscriber.emitter().complete()));
+        subscribers.clear();
+    }
+
+    private void scheduleDispatch(Subscriber subscriber) {
+        if (subscriber.dispatching().compareAndSet(false, true)) {
+            dispatchExecutor.execute(() -> dispatch(subscriber));
+        }
+    }
+
+    private void dispatch(Subscriber subscriber) {
+        try {
+            BalanceChangedEvent event;
+            while ((event = subscriber.buffer().poll()) != null) {
+                BalanceResponse balance = toResponse(event);
+                subscriber.emitter().send(SseEmitter.event()
+                        .name(BALANCE_EVENT)
+                        .id(String.valueOf(balance.cardId()))
+                        .data(balance, MediaType.APPLICATION_JSON));
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Отправка изменения баланса пользователю: {} прервана: {}", subscriber.username(), e.getMessage());
+            subscriber.emitter().completeWithError(e);
+            unsubscribe(subscriber);
+            return;
+        } finally {
+            subscriber.dispatching().set(false);
+        }
+
+        // Изменение могло появиться между последним poll и сбросом флага
+        if (!subscriber.buffer().isEmpty()) {
+            scheduleDispatch(subscriber);
+        }
+    }
+
+    private BalanceResponse toResponse(BalanceChangedEvent event) {
+        String maskedCardNumber = encryptionService.maskCardNumber(
+                encryptionService.decrypt(event.encryptedCardNumber()));
+        return new BalanceResponse(event.cardId(), maskedCardNumber, event.balance(), event.cardholderName());
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        AtomicBoolean removed = new AtomicBoolean();
+        subscribers.computeIfPresent(subscriber.username(), (key, set) -> {
+            removed.set(set.remove(subscriber));
+            return set.isEmpty() ? null : set;
+        });
+        if (removed.get()) {
+            subscriberCount.decrementAndGet();
+        }
+    }
+
+    private record Subscriber(String username, SseEmitter emitter, BlockingQueue<BalanceChangedEvent> buffer,
+                              AtomicBoolean dispatching) {
+
+        Subscriber(String username, SseEmitter emitter, BlockingQueue<BalanceChangedEvent> buffer) {
+            this(username, emitter, buffer, new AtomicBoolean());
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.event.CacheInvalidationEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Шина межузловой инвалидации кешей через PostgreSQL LISTEN/NOTIFY.
+ * <p>
+ * ID измененных карт и пользователей ставятся в очередь после фиксации транзакции. Отдельный поток
+ * на выделенном соединении (вне пула) раз в poll-interval отправляет накопленные ID пачкой
+ * ({@code pg_notify}) и принимает уведомления других узлов, публикуя {@link CacheInvalidationEvent}.
+ * Собственные уведомления узел отбрасывает по ID узла в сообщении.
+ * <p>
+ * Уведомления, пришедшие во время обрыва соединения, теряются, поэтому после переподключения
+ * кеши очищаются полностью и на этом узле, и (рассылкой) на остальных. Полная очистка рассылается
+ * и при переполнении очереди отправки, и при ошибке отправки: выбранные из очереди ID не возвращаются.
+ */
+@Component
+@Slf4j
+public class CacheInvalidationBus {
+
+    static final String CHANNEL = "bankcards_cache_invalidation";
+    static final String FLUSH_ALL = "*";
+
+    // Лимит полезной нагрузки NOTIFY — 8000 байт, оставляем запас
+    private static final int MAX_PAYLOAD_LENGTH = 7000;
+    private static final String CARD_PREFIX = "c";
+    private static final String USER_PREFIX = "u";
+    private static final char REVOKED_AT_SEPARATOR = ':';
+
+    private final DataSourceProperties dataSourceProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final long pollIntervalMillis;
+    private final long reconnectDelayMillis;
+    private final int maxPending;
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushAllPending = new AtomicBoolean();
+    private final Counter sentCounter;
+    private final Counter receivedCounter;
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public CacheInvalidationBus(DataSourceProperties dataSourceProperties,
+                                ApplicationEventPublisher eventPublisher,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.cache.invalidation.enabled:true}") boolean enabled,
+                                @Value("${app.cache.invalidation.poll-interval:50}") long pollIntervalMillis,
+                                @Value("${app.cache.invalidation.reconnect-delay:5000}") long reconnectDelayMillis,
+                                @Value("${app.cache.invalidation.max-pending:10000}") int maxPending) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.reconnectDelayMillis = reconnectDelayMillis;
+        this.maxPending = maxPending;
+        this.sentCounter = Counter.builder("bankcards.cache.invalidation.notifications")
+                .tag("direction", "sent")
+                .description("Количество уведомлений межузловой инвалидации кешей")
+                .register(meterRegistry);
+        this.receivedCounter = Counter.builder("bankcards.cache.invalidation.notifications")
+                .tag("direction", "received")
+                .description("Количество уведомлений межузловой инвалидации кешей")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запуск потока прослушивания после старта приложения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this::run, "cache-invalidation");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+        log.info("Межузловая инвалидация кешей включена, узел {}", nodeId);
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    /**
+     * Рассылка инвалидации карт другим узлам после фиксации текущей транзакции
+     */
+    public void publishCards(Collection<Long> cardIds) {
+        publish(CARD_PREFIX, cardIds);
+    }
+
+    /**
+     * Рассылка отзыва access-токенов пользователей другим узлам: ID пользователя и время отзыва (мс).
+     * Вызывается после фиксации транзакции, поэтому сообщения ставятся в очередь сразу
+     */
+    public void publishUserRevocations(Map<Long, Long> revokedAtByUserId) {
+        if (!enabled || revokedAtByUserId.isEmpty()) {
+            return;
+        }
+        enqueue(revokedAtByUserId.entrySet().stream()
+                .map(entry -> USER_PREFIX + entry.getKey() + REVOKED_AT_SEPARATOR + entry.getValue())
+                .toList());
+    }
+
+    private void publish(String prefix, Collection<Long> ids) {
+        if (!enabled || ids.isEmpty()) {
+            return;
+        }
+        List<String> tokens = ids.stream().map(id -> prefix + id).toList();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(tokens);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(tokens);
+            }
+        });
+    }
+
+    private void enqueue(List<String> tokens) {
+        if (pendingCount.addAndGet(tokens.size()) > maxPending) {
+            // Очередь не успевает уходить (например, нет соединения): точные ID заменяются полной очисткой
+            flushAllPending.set(true);
+            pending.clear();
+            pendingCount.set(0);
+            return;
+        }
+        pending.addAll(tokens);
+    }
+
+    private void run() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                if (reconnect) {
+                    log.info("Соединение шины инвалидации восстановлено, кеши очищаются полностью");
+                    flushAllPending.set(true);
+                    eventPublisher.publishEvent(CacheInvalidationEvent.flushAll());
+                }
+                reconnect = true;
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (PreparedStatement notify = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+                    while (running) {
+                        send(notify);
+                        PGNotification[] notifications = pgConnection.getNotifications((int) pollIntervalMillis);
+                        if (notifications != null) {
+                            receive(notifications);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    break;
+                }
+                log.warn("Ошибка соединения шины инвалидации кешей: {}, повтор через {} мс",
+                        e.getMessage(), reconnectDelayMillis);
+                sleep(reconnectDelayMillis);
+            } catch (RuntimeException e) {
+                log.error("Ошибка обработки инвалидации кешей: {}", e.getMessage(), e);
+                sleep(reconnectDelayMillis);
+            }
+        }
+    }
+
+    void send(PreparedStatement notify) throws SQLException {
+        List<String> payloads;
+        if (flushAllPending.getAndSet(false)) {
+            payloads = List.of(nodeId + "|" + FLUSH_ALL);
+        } else {
+            Set<String> tokens = new LinkedHashSet<>();
+            String token;
+            while ((token = pending.poll()) != null) {
+                pendingCount.decrementAndGet();
+                tokens.add(token);
+            }
+            payloads = encode(nodeId, tokens, MAX_PAYLOAD_LENGTH);
+        }
+        try {
+            for (String payload : payloads) {
+                notify.setString(1, CHANNEL);
+                notify.setString(2, payload);
+                notify.execute();
+                sentCounter.increment();
+            }
+        } catch (SQLException e) {
+            // Часть ID могла не уйти: после переподключения остальные узлы очищают кеши полностью
+            flushAllPending.set(true);
+            throw e;
+        }
+    }
+
+    private void receive(PGNotification[] notifications) {
+        Set<Long> cardIds = new LinkedHashSet<>();
+        Map<Long, Long> userRevocations = new LinkedHashMap<>();
+        boolean all = false;
+        for (PGNotification notification : notifications) {
+            if (!CHANNEL.equals(notification.getName())) {
+                continue;
+            }
+            receivedCounter.increment();
+            all |= decode(nodeId, notification.getParameter(), cardIds, userRevocations);
+        }
+        if (all) {
+            eventPublisher.publishEvent(CacheInvalidationEvent.flushAll());
+        } else if (!cardIds.isEmpty() || !userRevocations.isEmpty()) {
+            eventPublisher.publishEvent(new CacheInvalidationEvent(Set.copyOf(cardIds), Map.copyOf(userRevocations), false));
+        }
+    }
+
+    /**
+     * Разбиение токенов на сообщения вида {@code узел|c1,c2,u5:1700000000000} не длиннее maxLength
+     */
+    static List<String> encode(String nodeId, Collection<String> tokens, int maxLength) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder();
+        for (String token : tokens) {
+            if (payload.length() > 0 && payload.length() + 1 + token.length() > maxLength) {
+                payloads.add(payload.toString());
+                payload.setLength(0);
+            }
+            payload.append(payload.length() == 0 ? nodeId + "|" : ",").append(token);
+        }
+        if (payload.length() > 0) {
+            payloads.add(payload.toString());
+        }
+        return payloads;
+    }
+
+    /**
+     * Разбор сообщения другого узла; возвращает true, если требуется полная очистка.
+     * Собственные и некорректные сообщения пропускаются. Отзыв без времени (узел прежней версии)
+     * считается произошедшим в момент получения
+     */
+    static boolean decode(String nodeId, String payload, Set<Long> cardIds, Map<Long, Long> userRevocations) {
+        int separator = payload.indexOf('|');
+        if (separator < 0 || payload.substring(0, separator).equals(nodeId)) {
+            return false;
+        }
+        String body = payload.substring(separator + 1);
+        if (FLUSH_ALL.equals(body)) {
+            return true;
+        }
+        for (String token : body.split(",")) {
+            try {
+                if (token.startsWith(CARD_PREFIX)) {
+                    cardIds.add(Long.parseLong(token.substring(CARD_PREFIX.length())));
+                } else if (token.startsWith(USER_PREFIX)) {
+                    int revokedAtIndex = token.indexOf(REVOKED_AT_SEPARATOR);
+                    int idEnd = revokedAtIndex < 0 ? token.length() : revokedAtIndex;
+                    long userId = Long.parseLong(token.substring(USER_PREFIX.length(), idEnd));
+                    long revokedAt = revokedAtIndex < 0
+                            ? System.currentTimeMillis()
+                            : Long.parseLong(token.substring(revokedAtIndex + 1));
+                    userRevocations.merge(userId, revokedAt, Math::max);
+                }
+            } catch (NumberFormatException e) {
+                log.debug("Некорректный элемент инвалидации кешей: {}", token);
+            }
+        }
+        return false;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
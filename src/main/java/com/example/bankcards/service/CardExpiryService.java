@@ -0,0 +1,157 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.event.CardExpiringEvent;
+import com.example.bankcards.repository.CardRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Фоновая обработка сроков действия карт.
+ * <p>
+ * Активные карты с истекшим сроком переводятся в статус EXPIRED порциями: ID выбираются
+ * keyset-пагинацией, каждая порция обновляется одним UPDATE в отдельной транзакции.
+ * Для карт, срок которых истекает через заданное число дней, {@link CardExpiringEvent} записывается
+ * в outbox и доставляется релеем.
+ * <p>
+ * Задача запускается на всех узлах: шаги берут общую advisory-блокировку, поэтому узлы не обрабатывают
+ * карты одновременно, а уже записанные уведомления повторно не создаются.
+ */
+@Service
+@Slf4j
+public class CardExpiryService {
+
+    private static final String LOCK_KEY = "cards-expiry";
+
+    private final CardRepository cardRepository;
+    private final EncryptionService encryptionService;
+    private final EntityManager entityManager;
+    private final OutboxService outboxService;
+    private final CardViewCache cardViewCache;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final int batchSize;
+    private final int notifyDaysBefore;
+
+    public CardExpiryService(CardRepository cardRepository,
+                             EncryptionService encryptionService,
+                             EntityManager entityManager,
+                             OutboxService outboxService,
+                             CardViewCache cardViewCache,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.cards.expiry.batch-size:500}") int batchSize,
+                             @Value("${app.cards.expiry.notify-days-before:30}") int notifyDaysBefore) {
+        this.cardRepository = cardRepository;
+        this.encryptionService = encryptionService;
+        this.entityManager = entityManager;
+        this.outboxService = outboxService;
+        this.cardViewCache = cardViewCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.batchSize = batchSize;
+        this.notifyDaysBefore = notifyDaysBefore;
+    }
+
+    /**
+     * Ежедневная обработка сроков действия карт
+     */
+    @Scheduled(cron = "${app.cards.expiry.cron:0 5 0 * * *}")
+    public void processCardExpiry() {
+        expireCards();
+        notifyExpiringCards();
+    }
+
+    /**
+     * Перевод активных карт с истекшим сроком действия в статус EXPIRED
+     */
+    public long expireCards() {
+        LocalDate today = LocalDate.now();
+        Pageable limit = PageRequest.of(0, batchSize);
+        long lastId = 0;
+        long expired = 0;
+
+        while (true) {
+            long afterId = lastId;
+            List<Long> ids = readOnlyTransactionTemplate.execute(status ->
+                    cardRepository.findExpiredActiveCardIds(today, afterId, limit));
+            if (ids == null || ids.isEmpty()) {
+                break;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            Integer updated = transactionTemplate.execute(status -> cardRepository.tryAdvisoryLock(LOCK_KEY)
+                    ? cardRepository.expireCards(ids, today, now)
+                    : null);
+            if (updated == null) {
+                log.debug("Сроки действия карт обрабатывает другой узел");
+                break;
+            }
+            cardViewCache.invalidateAll(ids);
+            expired += updated;
+            lastId = ids.get(ids.size() - 1);
+
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+
+        if (expired > 0) {
+            log.info("Переведено в статус EXPIRED карт: {}", expired);
+        }
+        return expired;
+    }
+
+    /**
+     * Уведомление о картах, срок действия которых истекает через notifyDaysBefore дней
+     */
+    public long notifyExpiringCards() {
+        LocalDate expiryDate = LocalDate.now().plusDays(notifyDaysBefore);
+
+        Long notified = transactionTemplate.execute(status -> {
+            if (!cardRepository.tryAdvisoryLock(LOCK_KEY)) {
+                log.debug("Уведомления об истечении срока действия карт отправляет другой узел");
+                return 0L;
+            }
+            long count = 0;
+            try (Stream<Card> cards = cardRepository.streamCardsExpiringBetween(expiryDate, expiryDate)) {
+                for (Card card : (Iterable<Card>) cards::iterator) {
+                    if (outboxService.recordCardExpiringEvent(toEvent(card))) {
+                        count++;
+                    }
+                    entityManager.detach(card);
+                }
+            }
+            return count;
+        });
+
+        long result = notified != null ? notified : 0;
+        if (result > 0) {
+            log.info("Отправлено уведомлений об истечении срока действия карт: {}", result);
+        }
+        return result;
+    }
+
+    private CardExpiringEvent toEvent(Card card) {
+        String maskedCardNumber = encryptionService.maskCardNumber(encryptionService.decrypt(card.getCardNumber()));
+        return new CardExpiringEvent(
+                card.getId(),
+                card.getUser().getId(),
+                card.getUser().getEmail(),
+                maskedCardNumber,
+                card.getExpiryDate()
+        );
+    }
+}
@@ -0,0 +1,411 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.response.CardImportResponse;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleName;
+import com.example.bankcards.exception.ForbiddenOperationException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Сервис пакетного импорта карт из CSV.
+ * <p>
+ * Файл читается потоково порциями: номера карт шифруются параллельно на ограниченном пуле,
+ * дубликаты отсеиваются одной выборкой по индексу HMAC на порцию, а вставка выполняется
+ * многострочным INSERT. Ошибки по строкам записываются в файл результата.
+ * <p>
+ * Формат строки: {@code username,cardNumber,cardholderName}; первая строка может быть заголовком.
+ */
+@Service
+@Slf4j
+public class CardImportService {
+
+    private static final String INSERT_CARDS_SQL_PREFIX = "INSERT INTO cards " +
+            "(card_number, card_number_hash, card_last_four, card_holder_name, expiry_date, status, balance, user_id, created_at, updated_at) " +
+            "VALUES ";
+    private static final String INSERT_CARD_VALUES = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_CARDS_SQL_SUFFIX = " ON CONFLICT (card_number_hash) DO NOTHING RETURNING card_number_hash";
+    // PostgreSQL принимает не более 65535 параметров в запросе, на строку их 10
+    private static final int MAX_ROWS_PER_INSERT = 1000;
+    private static final String HEADER_PREFIX = "username,";
+    private static final String BYTE_ORDER_MARK = "\uFEFF";
+    private static final Pattern CARD_NUMBER_PATTERN = Pattern.compile("\\d{16}");
+    private static final int MAX_HOLDER_NAME_LENGTH = 100;
+    private static final int CARD_VALIDITY_YEARS = 3;
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final CardRepository cardRepository;
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final EncryptionService encryptionService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService encryptionExecutor;
+    private final int workers;
+    private final int batchSize;
+    private final Path resultDirectory;
+
+    public CardImportService(CardRepository cardRepository,
+                             UserRepository userRepository,
+                             UserService userService,
+                             EncryptionService encryptionService,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.cards.import.workers:4}") int workers,
+                             @Value("${app.cards.import.batch-size:1000}") int batchSize,
+                             @Value("${app.cards.import.result-dir:imports}") String resultDirectory) {
+        this.cardRepository = cardRepository;
+        this.userRepository = userRepository;
+        this.userService = userService;
+        this.encryptionService = encryptionService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.resultDirectory = Paths.get(resultDirectory);
+        // Очередь ограничена: при переполнении задачу выполняет вызывающий поток,
+        // поэтому импорт не может накопить неограниченное число задач в памяти
+        this.encryptionExecutor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 4),
+                new CustomizableThreadFactory("card-import-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Импорт карт из CSV-потока (только для администраторов)
+     */
+    public CardImportResponse importCards(InputStream input, String username) throws IOException {
+        log.info("Пакетный импорт карт администратором: {}", username);
+
+        User user = userService.findByUsername(username);
+        if (!userService.hasRole(user.getId(), RoleName.ROLE_ADMIN)) {
+            throw new ForbiddenOperationException("Недостаточно прав для выполнения операции");
+        }
+
+        Files.createDirectories(resultDirectory);
+        Path resultFile = resultDirectory.resolve("card-import-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".csv");
+
+        long startedAt = System.nanoTime();
+        ImportState state;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+             BufferedWriter report = Files.newBufferedWriter(resultFile, StandardCharsets.UTF_8)) {
+
+            report.write("line,cardNumber,message\r\n");
+            state = new ImportState(report);
+
+            List<ImportRow> chunk = new ArrayList<>(batchSize);
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && line.startsWith(BYTE_ORDER_MARK)) {
+                    line = line.substring(1);
+                }
+                if (line.isBlank() || (lineNumber == 1 && line.toLowerCase().startsWith(HEADER_PREFIX))) {
+                    continue;
+                }
+                chunk.add(new ImportRow(lineNumber, line));
+                if (chunk.size() == batchSize) {
+                    processChunk(chunk, state);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                processChunk(chunk, state);
+            }
+        }
+
+        log.info("Импорт карт завершен за {} мс: строк {}, импортировано {}, ошибок {}, результат: {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt),
+                state.total, state.imported, state.failed, resultFile);
+
+        return new CardImportResponse(state.total, state.imported, state.failed, resultFile.toString());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        encryptionExecutor.shutdown();
+    }
+
+    /**
+     * Обработка одной порции строк: разбор, поиск пользователей, шифрование, дедупликация и вставка
+     */
+    private void processChunk(List<ImportRow> chunk, ImportState state) throws IOException {
+        state.total += chunk.size();
+
+        List<ParsedRow> parsedRows = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            ParsedRow parsed = parse(row, state);
+            if (parsed != null) {
+                parsedRows.add(parsed);
+            }
+        }
+
+        resolveUserIds(parsedRows, state);
+
+        List<ParsedRow> knownUserRows = new ArrayList<>(parsedRows.size());
+        for (ParsedRow row : parsedRows) {
+            if (state.userIds.get(row.username()) != null) {
+                knownUserRows.add(row);
+            } else {
+                state.fail(row.lineNumber(), mask(row.cardNumber()), "Пользователь '" + row.username() + "' не найден");
+            }
+        }
+
+        List<PreparedCard> prepared = encrypt(knownUserRows, state);
+        List<PreparedCard> unique = deduplicate(prepared, state);
+        insert(unique, state);
+    }
+
+    private ParsedRow parse(ImportRow row, ImportState state) throws IOException {
+        String[] parts = row.line().split(",", 3);
+        if (parts.length < 3) {
+            state.fail(row.lineNumber(), "", "Ожидается формат username,cardNumber,cardholderName");
+            return null;
+        }
+
+        String username = parts[0].trim();
+        String cardNumber = parts[1].trim();
+        String holderName = unquote(parts[2].trim());
+
+        if (username.isEmpty()) {
+            state.fail(row.lineNumber(), mask(cardNumber), "Имя пользователя не может быть пустым");
+            return null;
+        }
+        if (!CARD_NUMBER_PATTERN.matcher(cardNumber).matches()) {
+            state.fail(row.lineNumber(), mask(cardNumber), "Номер карты должен содержать 16 цифр");
+            return null;
+        }
+        if (holderName.isEmpty() || holderName.length() > MAX_HOLDER_NAME_LENGTH) {
+            state.fail(row.lineNumber(), mask(cardNumber), "Имя держателя карты должно быть от 1 до 100 символов");
+            return null;
+        }
+        return new ParsedRow(row.lineNumber(), username, cardNumber, holderName);
+    }
+
+    /**
+     * Загрузка ID пользователей порции одним запросом; найденные ID кэшируются на время импорта
+     */
+    private void resolveUserIds(List<ParsedRow> rows, ImportState state) {
+        Set<String> missing = new HashSet<>();
+        for (ParsedRow row : rows) {
+            if (!state.userIds.containsKey(row.username())) {
+                missing.add(row.username());
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        userRepository.findIdsByUsernameIn(missing)
+                .forEach(view -> state.userIds.put(view.getUsername(), view.getId()));
+        missing.forEach(username -> state.userIds.putIfAbsent(username, null));
+    }
+
+    /**
+     * Параллельное шифрование и хэширование номеров карт на ограниченном пуле
+     */
+    private List<PreparedCard> encrypt(List<ParsedRow> rows, ImportState state) throws IOException {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+
+        int sliceSize = Math.max(1, (rows.size() + workers - 1) / workers);
+        List<CompletableFuture<List<PreparedCard>>> futures = new ArrayList<>();
+        for (int from = 0; from < rows.size(); from += sliceSize) {
+            List<ParsedRow> slice = rows.subList(from, Math.min(rows.size(), from + sliceSize));
+            futures.add(CompletableFuture.supplyAsync(() -> encryptSlice(slice), encryptionExecutor));
+        }
+
+        List<PreparedCard> prepared = new ArrayList<>(rows.size());
+        for (CompletableFuture<List<PreparedCard>> future : futures) {
+            for (PreparedCard card : future.join()) {
+                if (card.error() != null) {
+                    state.fail(card.row().lineNumber(), mask(card.row().cardNumber()), card.error());
+                } else {
+                    prepared.add(card);
+                }
+            }
+        }
+        return prepared;
+    }
+
+    private List<PreparedCard> encryptSlice(List<ParsedRow> slice) {
+        List<PreparedCard> result = new ArrayList<>(slice.size());
+        for (ParsedRow row : slice) {
+            try {
+                result.add(new PreparedCard(row,
+                        encryptionService.encrypt(row.cardNumber()),
+                        encryptionService.hash(row.cardNumber()),
+                        null));
+            } catch (RuntimeException e) {
+                result.add(new PreparedCard(row, null, null, "Ошибка шифрования номера карты"));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Отсев дубликатов внутри файла и уже существующих в БД карт (одна выборка по индексу на порцию)
+     */
+    private List<PreparedCard> deduplicate(List<PreparedCard> cards, ImportState state) throws IOException {
+        if (cards.isEmpty()) {
+            return cards;
+        }
+
+        List<String> hashes = new ArrayList<>(cards.size());
+        for (PreparedCard card : cards) {
+            hashes.add(card.hash());
+        }
+        Set<String> existing = cardRepository.findExistingCardNumberHashes(hashes);
+
+        List<PreparedCard> unique = new ArrayList<>(cards.size());
+        for (PreparedCard card : cards) {
+            if (existing.contains(card.hash()) || !state.seenHashes.add(card.hash())) {
+                state.fail(card.row().lineNumber(), mask(card.row().cardNumber()), "Карта с таким номером уже существует");
+            } else {
+                unique.add(card);
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * Вставка порции одной транзакцией. Вставленные строки определяются по RETURNING:
+     * счетчики JDBC-батча при reWriteBatchedInserts равны SUCCESS_NO_INFO и не отличают
+     * строки, пропущенные ON CONFLICT
+     */
+    private void insert(List<PreparedCard> cards, ImportState state) throws IOException {
+        if (cards.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+        Date expiryDate = Date.valueOf(LocalDate.now().plusYears(CARD_VALIDITY_YEARS));
+
+        Set<String> inserted = transactionTemplate.execute(status -> {
+            Set<String> hashes = new HashSet<>();
+            for (int from = 0; from < cards.size(); from += MAX_ROWS_PER_INSERT) {
+                List<PreparedCard> part = cards.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, cards.size()));
+                hashes.addAll(jdbcTemplate.query(insertSql(part.size()),
+                        ps -> setInsertValues(ps, part, state, expiryDate, timestamp),
+                        (rs, rowNum) -> rs.getString(1)));
+            }
+            return hashes;
+        });
+
+        for (PreparedCard card : cards) {
+            // Строка не вернулась — пропущена ON CONFLICT (карту параллельно вставил другой запрос)
+            if (inserted != null && inserted.contains(card.hash())) {
+                state.imported++;
+            } else {
+                state.fail(card.row().lineNumber(), mask(card.row().cardNumber()), "Карта с таким номером уже существует");
+            }
+        }
+    }
+
+    private void setInsertValues(PreparedStatement ps, List<PreparedCard> cards, ImportState state,
+                                 Date expiryDate, Timestamp timestamp) throws SQLException {
+        int index = 0;
+        for (PreparedCard card : cards) {
+            ps.setString(++index, card.encryptedNumber());
+            ps.setString(++index, card.hash());
+            ps.setString(++index, encryptionService.lastFour(card.row().cardNumber()));
+            ps.setString(++index, card.row().holderName());
+            ps.setDate(++index, expiryDate);
+            ps.setString(++index, CardStatus.ACTIVE.name());
+            ps.setBigDecimal(++index, BigDecimal.ZERO);
+            ps.setLong(++index, state.userIds.get(card.row().username()));
+            ps.setTimestamp(++index, timestamp);
+            ps.setTimestamp(++index, timestamp);
+        }
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_CARDS_SQL_PREFIX.length()
+                + rows * (INSERT_CARD_VALUES.length() + 2) + INSERT_CARDS_SQL_SUFFIX.length());
+        sql.append(INSERT_CARDS_SQL_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "" : ", ").append(INSERT_CARD_VALUES);
+        }
+        return sql.append(INSERT_CARDS_SQL_SUFFIX).toString();
+    }
+
+    private String mask(String cardNumber) {
+        return encryptionService.maskCardNumber(cardNumber);
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1).replace("\"\"", "\"").trim();
+        }
+        return value;
+    }
+
+    private record ImportRow(long lineNumber, String line) {}
+
+    private record ParsedRow(long lineNumber, String username, String cardNumber, String holderName) {}
+
+    private record PreparedCard(ParsedRow row, String encryptedNumber, String hash, String error) {}
+
+    /**
+     * Состояние одного импорта: счетчики, кэш пользователей, HMAC уже встреченных номеров и файл результата
+     */
+    private static final class ImportState {
+
+        private final BufferedWriter report;
+        private final Map<String, Long> userIds = new HashMap<>();
+        private final Set<String> seenHashes = new HashSet<>();
+        private long total;
+        private long imported;
+        private long failed;
+
+        private ImportState(BufferedWriter report) {
+            this.report = report;
+        }
+
+        private void fail(long lineNumber, String maskedCardNumber, String message) throws IOException {
+            failed++;
+            report.write(lineNumber + "," + maskedCardNumber + ",\"" + message.replace("\"", "\"\"") + "\"\r\n");
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.bankcards.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Заполнение HMAC номера и последних четырех цифр для карт, созданных до появления
+ * колонок card_number_hash и card_last_four.
+ * Выполняется при старте порциями по возрастанию ID; уже заполненные карты не затрагиваются.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cards.hash-backfill.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class CardNumberHashBackfill implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String SELECT_SQL =
+            "SELECT id, card_number FROM cards " +
+            "WHERE (card_number_hash IS NULL OR card_last_four IS NULL) AND id > ? ORDER BY id LIMIT ?";
+
+    // Дубликаты, созданные до появления индекса, не получают HMAC, чтобы не нарушить уникальность
+    private static final String UPDATE_SQL =
+            "UPDATE cards SET version = version + 1, card_last_four = ?, card_number_hash = CASE " +
+            "WHEN card_number_hash IS NULL AND NOT EXISTS (SELECT 1 FROM cards WHERE card_number_hash = ?) THEN ? " +
+            "ELSE card_number_hash END " +
+            "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EncryptionService encryptionService;
+
+    public CardNumberHashBackfill(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  EncryptionService encryptionService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.encryptionService = encryptionService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long lastId = 0;
+        long updated = 0;
+
+        while (true) {
+            long afterId = lastId;
+            List<CardRow> batch = transactionTemplate.execute(status -> jdbcTemplate.query(SELECT_SQL,
+                    (rs, rowNum) -> new CardRow(rs.getLong("id"), rs.getString("card_number")),
+                    afterId, BATCH_SIZE));
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+
+            List<Object[]> arguments = new ArrayList<>(batch.size());
+            for (CardRow row : batch) {
+                try {
+                    String cardNumber = encryptionService.decrypt(row.cardNumber());
+                    String hash = encryptionService.hash(cardNumber);
+                    arguments.add(new Object[]{encryptionService.lastFour(cardNumber), hash, hash, row.id()});
+                } catch (RuntimeException e) {
+                    log.warn("Не удалось вычислить HMAC для карты с ID: {}: {}", row.id(), e.getMessage());
+                }
+            }
+
+            int[] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, arguments));
+            if (counts != null) {
+                for (int count : counts) {
+                    updated += Math.max(count, 0);
+                }
+            }
+            lastId = batch.get(batch.size() - 1).id();
+        }
+
+        if (updated > 0) {
+            log.info("HMAC номера и последние цифры заполнены для {} карт", updated);
+        }
+    }
+
+    private record CardRow(long id, String cardNumber) {}
+}
@@ -1,6 +1,7 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.request.CardCreateRequest;
+import com.example.bankcards.dto.request.CardSearchRequest;
 import com.example.bankcards.dto.response.CardResponse;
 import com.example.bankcards.dto.request.CardUpdateRequest;
 import com.example.bankcards.entity.Card;
@@ -9,16 +10,22 @@ import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.RoleName;
 import com.example.bankcards.exception.CardNotFoundException;
 import com.example.bankcards.exception.DuplicateCardNumberException;
+import com.example.bankcards.exception.ForbiddenOperationException;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardSpecifications;
+import com.example.bankcards.util.ETags;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.access.AccessDeniedException;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Сервис для управления банковскими картами
@@ -32,6 +39,7 @@ public class CardService {
     private final CardRepository cardRepository;
     private final UserService userService;
     private final EncryptionService encryptionService;
+    private final CardViewCache cardViewCache;
 
     /**
      * Создание новой карты
@@ -41,16 +49,18 @@ public class CardService {
 
         User user = userService.findByUsername(username);
 
-        // Шифруем номер карты для проверки дубликатов
-        String encryptedCardNumber = encryptionService.encrypt(request.cardNumber());
-        
-        // Проверяем дубликаты по зашифрованному номеру
-        if (cardRepository.existsByCardNumber(encryptedCardNumber)) {
+        // Проверяем дубликаты по HMAC номера (шифротекст содержит случайный IV и для поиска непригоден)
+        String cardNumberHash = encryptionService.hash(request.cardNumber());
+        if (cardRepository.existsByCardNumberHash(cardNumberHash)) {
             throw new DuplicateCardNumberException("Карта с номером " + encryptionService.maskCardNumber(request.cardNumber()) + " уже существует");
         }
 
+        String encryptedCardNumber = encryptionService.encrypt(request.cardNumber());
+
         Card card = Card.builder()
                 .cardNumber(encryptedCardNumber) // Сохраняем зашифрованный номер
+                .cardNumberHash(cardNumberHash)
+                .cardLastFour(encryptionService.lastFour(request.cardNumber()))
                 .cardHolderName(request.cardholderName())
                 .expiryDate(java.time.LocalDate.now().plusYears(3)) // Карта действительна 3 года
                 .status(CardStatus.ACTIVE)
@@ -70,12 +80,51 @@ public class CardService {
      */
     @Transactional(readOnly = true)
     public CardResponse getCard(Long cardId, String username) {
+        return getCard(cardId, username, 0L);
+    }
+
+    /**
+     * Получение карты по ID не старше minVersion (версия из {@link #getCardVersion}, по которой построен ETag)
+     */
+    @Transactional(readOnly = true)
+    public CardResponse getCard(Long cardId, String username, long minVersion) {
         log.debug("Получение карты с ID: {} для пользователя: {}", cardId, username);
 
-        Card card = findCardById(cardId);
-        validateCardAccess(card, username);
+        CardView view = cardViewCache.get(cardId, minVersion, this::loadView);
+        if (view == null) {
+            throw new CardNotFoundException("Карта с ID " + cardId + " не найдена");
+        }
+        validateCardAccess(view.ownerUsername(), username);
 
-        return mapToResponse(card);
+        return new CardResponse(
+                view.id(),
+                view.maskedCardNumber(),
+                view.cardHolderName(),
+                view.status(),
+                view.createdAt(),
+                view.updatedAt()
+        );
+    }
+
+    /**
+     * Версия карты для ETag из БД без загрузки сущности и расшифровки номера.
+     * Доступ проверяется так же, как при чтении карты
+     */
+    @Transactional(readOnly = true)
+    public long getCardVersion(Long cardId, String username) {
+        CardRepository.CardVersionView version = cardRepository.findVersionById(cardId)
+                .orElseThrow(() -> new CardNotFoundException("Карта с ID " + cardId + " не найдена"));
+        validateCardAccess(version.getOwnerUsername(), username);
+        return version.getVersion();
+    }
+
+    /**
+     * ETag страницы карт пользователя (scope: cards или balances) по версии набора карт
+     */
+    @Transactional(readOnly = true)
+    public String getUserCardsETag(String scope, String username, Pageable pageable) {
+        CardRepository.CardSetVersionView version = cardRepository.findCardSetVersion(username);
+        return ETags.cardSet(scope, version.getCount(), version.getIdSum(), version.getVersionSum(), pageable);
     }
 
     /**
@@ -110,6 +159,7 @@ public class CardService {
 
         card.setUpdatedAt(LocalDateTime.now());
         Card updatedCard = cardRepository.save(card);
+        cardViewCache.updated(cardId, () -> toView(updatedCard));
 
         log.info("Карта с ID: {} обновлена", cardId);
         return mapToResponse(updatedCard);
@@ -127,6 +177,7 @@ public class CardService {
         card.setStatus(CardStatus.BLOCKED);
         card.setUpdatedAt(LocalDateTime.now());
         Card blockedCard = cardRepository.save(card);
+        cardViewCache.updated(cardId, () -> toView(blockedCard));
 
         log.info("Карта с ID: {} заблокирована", cardId);
         return mapToResponse(blockedCard);
@@ -141,9 +192,11 @@ public class CardService {
         Card card = findCardById(cardId);
         validateCardAccess(card, username);
 
-        card.setStatus(CardStatus.ACTIVE);
+        // Карта с истекшим сроком не возвращается в ACTIVE: фильтры по статусу должны оставаться точными
+        card.setStatus(card.isExpired() ? CardStatus.EXPIRED : CardStatus.ACTIVE);
         card.setUpdatedAt(LocalDateTime.now());
         Card unblockedCard = cardRepository.save(card);
+        cardViewCache.updated(cardId, () -> toView(unblockedCard));
 
         log.info("Карта с ID: {} разблокирована", cardId);
         return mapToResponse(unblockedCard);
@@ -159,6 +212,7 @@ public class CardService {
         validateCardAccess(card, username);
 
         cardRepository.delete(card);
+        cardViewCache.deleted(cardId);
         log.info("Карта с ID: {} удалена", cardId);
     }
 
@@ -171,7 +225,7 @@ public class CardService {
 
         User user = userService.findByUsername(username);
         if (!userService.hasRole(user.getId(), RoleName.ROLE_ADMIN)) {
-            throw new AccessDeniedException("Недостаточно прав для выполнения операции");
+            throw new ForbiddenOperationException("Недостаточно прав для выполнения операции");
         }
 
         // Шифруем входящий номер карты для поиска
@@ -191,13 +245,42 @@ public class CardService {
 
         User user = userService.findByUsername(username);
         if (!userService.hasRole(user.getId(), RoleName.ROLE_ADMIN)) {
-            throw new AccessDeniedException("Недостаточно прав для выполнения операции");
+            throw new ForbiddenOperationException("Недостаточно прав для выполнения операции");
         }
 
         Page<Card> cards = cardRepository.findAllByOrderByCreatedAtDesc(pageable);
         return cards.map(this::mapToResponse);
     }
 
+    /**
+     * Поиск карт по фильтрам (только для администраторов)
+     */
+    @Transactional(readOnly = true)
+    public Page<CardResponse> searchCards(CardSearchRequest criteria, String username, Pageable pageable) {
+        log.info("Поиск карт для администратора: {}", username);
+
+        User user = userService.findByUsername(username);
+        if (!userService.hasRole(user.getId(), RoleName.ROLE_ADMIN)) {
+            throw new ForbiddenOperationException("Недостаточно прав для выполнения операции");
+        }
+
+        List<Specification<Card>> filters = new ArrayList<>();
+        if (criteria.status() != null) {
+            filters.add(CardSpecifications.hasStatus(criteria.status()));
+        }
+        if (criteria.userId() != null) {
+            filters.add(CardSpecifications.ownedBy(criteria.userId()));
+        }
+        if (StringUtils.hasText(criteria.holder())) {
+            filters.add(CardSpecifications.holderNameContains(criteria.holder()));
+        }
+        if (StringUtils.hasText(criteria.lastFour())) {
+            filters.add(CardSpecifications.lastFourEquals(criteria.lastFour()));
+        }
+
+        return cardRepository.findAll(Specification.allOf(filters), pageable).map(this::mapToResponse);
+    }
+
     /**
      * Поиск карты по ID
      */
@@ -210,14 +293,34 @@ public class CardService {
      * Проверка доступа к карте
      */
     private void validateCardAccess(Card card, String username) {
-        if (!card.getUser().getUsername().equals(username)) {
+        validateCardAccess(card.getUser().getUsername(), username);
+    }
+
+    private void validateCardAccess(String ownerUsername, String username) {
+        if (!ownerUsername.equals(username)) {
             User user = userService.findByUsername(username);
             if (!userService.hasRole(user.getId(), RoleName.ROLE_ADMIN)) {
-                throw new AccessDeniedException("Недостаточно прав для доступа к карте");
+                throw new ForbiddenOperationException("Недостаточно прав для доступа к карте");
             }
         }
     }
 
+    /**
+     * Загрузка представления карты при промахе кеша
+     */
+    private CardView loadView(Long cardId) {
+        return cardRepository.findById(cardId)
+                .map(card -> CardView.of(card, encryptionService.maskCardNumber(encryptionService.decrypt(card.getCardNumber()))))
+                .orElse(null);
+    }
+
+    /**
+     * Представление измененной карты для write-through: номер маскируется по card_last_four, без расшифровки
+     */
+    private CardView toView(Card card) {
+        return CardView.of(card, encryptionService.maskStoredCardNumber(card));
+    }
+
     /**
      * Преобразование Card в CardResponse
      */
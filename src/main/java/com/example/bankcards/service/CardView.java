@@ -0,0 +1,46 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.enums.CardStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Неизменяемое представление карты для чтения: номер уже расшифрован и замаскирован,
+ * владелец хранится логином для проверки доступа без загрузки пользователя
+ */
+public record CardView(
+        Long id,
+        String ownerUsername,
+        String maskedCardNumber,
+        String cardHolderName,
+        CardStatus status,
+        BigDecimal balance,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        long version
+) {
+
+    public static CardView of(Card card, String maskedCardNumber) {
+        return new CardView(
+                card.getId(),
+                card.getUser().getUsername(),
+                maskedCardNumber,
+                card.getCardHolderName(),
+                card.getStatus(),
+                card.getBalance(),
+                card.getCreatedAt(),
+                card.getUpdatedAt(),
+                card.getVersion() != null ? card.getVersion() : 0
+        );
+    }
+
+    /**
+     * Представление с версией, которую карта получит при фиксации текущего изменения
+     */
+    public CardView nextVersion() {
+        return new CardView(id, ownerUsername, maskedCardNumber, cardHolderName, status, balance,
+                createdAt, updatedAt, version + 1);
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.ReplicaRoutingDataSource;
+import com.example.bankcards.event.CacheInvalidationEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Кеш представлений карт по ID для getCard и getCardBalance.
+ * <p>
+ * Ограниченный кеш Caffeine (вытеснение W-TinyLFU). Изменения карты применяются к кешу
+ * только после фиксации транзакции, поэтому откаченный перевод не попадает в кеш.
+ * Режимы app.cards.cache.mode:
+ * <ul>
+ *     <li>{@code invalidate} — запись удаляется, следующее чтение загружает карту из БД;</li>
+ *     <li>{@code write-through} — запись заменяется новым представлением, представление
+ *     с большей версией карты не перезаписывается меньшей;</li>
+ *     <li>{@code off} — кеш не используется.</li>
+ * </ul>
+ * При чтении с реплики режим invalidate может закешировать отстающую копию до expire-after-write,
+ * поэтому по умолчанию используется write-through. Изменения рассылаются другим узлам через
+ * {@link CacheInvalidationBus}, которые удаляют свои записи; expire-after-write ограничивает
+ * устаревание, если уведомление потеряно. Реплика могла еще не применить изменение, о котором
+ * пришло уведомление, поэтому при чтении с реплики карты, инвалидированные другим узлом, в течение
+ * app.datasource.replica.pin-duration загружаются в отдельной транзакции на основной БД.
+ */
+@Component
+public class CardViewCache {
+
+    enum Mode { OFF, INVALIDATE, WRITE_THROUGH }
+
+    private final Cache<Long, CardView> views;
+    private final Mode mode;
+    private final CacheInvalidationBus invalidationBus;
+    private final TransactionTemplate primaryReadTemplate;
+    private final boolean replicaReads;
+    private final long replicaLagNanos;
+    // Карты, инвалидированные другим узлом, и срок, до которого все карты читаются с основной БД
+    private final Cache<Long, Boolean> remotelyInvalidated;
+    private volatile long primaryReadsUntil = System.nanoTime();
+
+    public CardViewCache(MeterRegistry meterRegistry,
+                         CacheInvalidationBus invalidationBus,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.cards.cache.mode:write-through}") String mode,
+                         @Value("${app.cards.cache.maximum-size:10000}") long maximumSize,
+                         @Value("${app.cards.cache.expire-after-write:PT5M}") Duration expireAfterWrite,
+                         @Value("${app.datasource.replica.url:}") String replicaUrl,
+                         @Value("${app.datasource.replica.pin-duration:PT5S}") Duration replicaLag) {
+        this.invalidationBus = invalidationBus;
+        this.primaryReadTemplate = new TransactionTemplate(transactionManager);
+        this.primaryReadTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.primaryReadTemplate.setReadOnly(true);
+        this.replicaReads = !replicaUrl.isBlank();
+        this.replicaLagNanos = replicaLag.toNanos();
+        this.remotelyInvalidated = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(replicaLag)
+                .build();
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        this.views = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, views, "card-views");
+    }
+
+    /**
+     * Представление карты из кеша или загруженное loader (null — карта не найдена, не кешируется).
+     * Загрузка одного ключа не выполняется параллельно, инвалидация дожидается ее завершения
+     */
+    public CardView get(Long cardId, Function<Long, CardView> loader) {
+        if (mode == Mode.OFF) {
+            return loader.apply(cardId);
+        }
+        return views.get(cardId, id -> readFromPrimary(id) ? loadFromPrimary(id, loader) : loader.apply(id));
+    }
+
+    /**
+     * Представление не старше minVersion — версии из БД, по которой построен ETag ответа.
+     * Отстающая запись кеша (инвалидация еще не дошла) перечитывается из основной БД и заменяется,
+     * поэтому под ETag никогда не отдается тело более старой версии
+     */
+    public CardView get(Long cardId, long minVersion, Function<Long, CardView> loader) {
+        CardView view = get(cardId, loader);
+        if (view == null || view.version() >= minVersion) {
+            return view;
+        }
+        CardView fresh = loadFromPrimary(cardId, loader);
+        if (mode != Mode.OFF) {
+            if (fresh == null) {
+                views.invalidate(cardId);
+            } else {
+                views.asMap().merge(cardId, fresh, (cached, loaded) -> cached.version() > loaded.version() ? cached : loaded);
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * Карта изменена в текущей транзакции. В режиме write-through представление строится сразу
+     * (сущность еще доступна) с версией, которую карта получит при фиксации, а в кеш попадает после нее
+     */
+    public void updated(Long cardId, Supplier<CardView> view) {
+        switch (mode) {
+            case OFF -> { }
+            case INVALIDATE -> afterCommit(() -> views.invalidate(cardId));
+            case WRITE_THROUGH -> {
+                CardView updated = view.get().nextVersion();
+                afterCommit(() -> views.asMap().merge(cardId, updated,
+                        (cached, fresh) -> cached.version() > fresh.version() ? cached : fresh));
+            }
+        }
+        invalidationBus.publishCards(List.of(cardId));
+    }
+
+    /**
+     * Карта удалена в текущей транзакции
+     */
+    public void deleted(Long cardId) {
+        if (mode != Mode.OFF) {
+            afterCommit(() -> views.invalidate(cardId));
+        }
+        invalidationBus.publishCards(List.of(cardId));
+    }
+
+    /**
+     * Немедленное удаление записей карт, измененных массовым обновлением в уже завершенной транзакции
+     */
+    public void invalidateAll(Collection<Long> cardIds) {
+        views.invalidateAll(cardIds);
+        invalidationBus.publishCards(cardIds);
+    }
+
+    /**
+     * Инвалидация, полученная от другого узла
+     */
+    @EventListener
+    public void onRemoteInvalidation(CacheInvalidationEvent event) {
+        if (event.all()) {
+            if (replicaReads) {
+                primaryReadsUntil = System.nanoTime() + replicaLagNanos;
+            }
+            views.invalidateAll();
+        } else if (!event.cardIds().isEmpty()) {
+            if (replicaReads) {
+                event.cardIds().forEach(cardId -> remotelyInvalidated.put(cardId, Boolean.TRUE));
+            }
+            views.invalidateAll(event.cardIds());
+        }
+    }
+
+    private boolean readFromPrimary(Long cardId) {
+        return replicaReads && (primaryReadsUntil - System.nanoTime() > 0
+                || remotelyInvalidated.getIfPresent(cardId) != null);
+    }
+
+    private CardView loadFromPrimary(Long cardId, Function<Long, CardView> loader) {
+        return ReplicaRoutingDataSource.readFromPrimary(
+                () -> primaryReadTemplate.execute(status -> loader.apply(cardId)));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,30 +1,50 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.config.ReplicaRoutingDataSource;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Collection;
 
 /**
- * Сервис для загрузки пользователя для Spring Security
+ * Сервис для загрузки пользователя для Spring Security.
+ * <p>
+ * Пользователь читается из основной БД: вход сразу после регистрации или смены пароля
+ * не должен зависеть от отставания реплики
  */
 @Service
-@RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+@Slf4j
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final TransactionTemplate primaryReadTemplate;
+
+    public CustomUserDetailsService(UserRepository userRepository, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.primaryReadTemplate = new TransactionTemplate(transactionManager);
+        this.primaryReadTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.primaryReadTemplate.setReadOnly(true);
+    }
 
     @Override
-    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return ReplicaRoutingDataSource.readFromPrimary(
+                () -> primaryReadTemplate.execute(status -> toUserDetails(username)));
+    }
+
+    private UserDetails toUserDetails(String username) {
         User user = userRepository.findByUsernameOrEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден: " + username));
 
@@ -36,6 +56,20 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .build();
     }
 
+    /**
+     * Сохранение пароля, перехешированного при входе с новым алгоритмом или стоимостью
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        log.info("Хеш пароля пользователя {} обновлен", user.getUsername());
+
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+
     /**
      * Получение ролей пользователя
      */
@@ -1,14 +1,22 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.entity.Card;
 import com.example.bankcards.exception.EncryptionException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Сервис для шифрования/дешифрования номеров карт
@@ -20,19 +28,33 @@ public class EncryptionService {
     private static final String TRANSFORMATION = "AES/GCM/NoPadding";
     private static final int GCM_IV_LENGTH = 12;
     private static final int GCM_TAG_LENGTH = 16;
+    private static final String HASH_ALGORITHM = "HmacSHA256";
+    private static final String HASH_KEY_CONTEXT = "card-number-hash:";
+    private static final String MASK_PREFIX = "**** **** **** ";
     private final SecretKeySpec secretKey;
-    private final SecureRandom secureRandom;
+    private final SecretKeySpec hashKey;
+    private final SecureRandom[] secureRandoms;
+    private final ReentrantLock[] secureRandomLocks;
 
     public EncryptionService(@Value("${app.encryption.key:MySecretKey12345}") String key) {
         String normalizedKey = String.format("%-16s", key).substring(0, 16);
         this.secretKey = new SecretKeySpec(normalizedKey.getBytes(), ALGORITHM);
-        this.secureRandom = new SecureRandom();
+        this.hashKey = new SecretKeySpec(deriveHashKey(key), HASH_ALGORITHM);
+
+        // Несколько независимых DRBG с ReentrantLock вместо общего SecureRandom: NativePRNG
+        // синхронизирован и читает /dev/urandom, что блокирует (pin) виртуальные потоки
+        int stripes = Runtime.getRuntime().availableProcessors();
+        this.secureRandoms = new SecureRandom[stripes];
+        this.secureRandomLocks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.secureRandoms[i] = createSecureRandom();
+            this.secureRandomLocks[i] = new ReentrantLock();
+        }
     }
 
     public String encrypt(String cardNumber) {
         try {
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            secureRandom.nextBytes(iv);
+            byte[] iv = nextIv();
 
             Cipher cipher = Cipher.getInstance(TRANSFORMATION);
             GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv);
@@ -70,11 +92,75 @@ public class EncryptionService {
         }
     }
 
+    /**
+     * Детерминированный HMAC-SHA256 номера карты для поиска дубликатов по индексу.
+     * В отличие от encrypt, одинаковые номера всегда дают одинаковый результат.
+     */
+    public String hash(String cardNumber) {
+        try {
+            Mac mac = Mac.getInstance(HASH_ALGORITHM);
+            mac.init(hashKey);
+            return HexFormat.of().formatHex(mac.doFinal(cardNumber.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new EncryptionException("Ошибка хэширования номера карты", e);
+        }
+    }
+
     public String maskCardNumber(String cardNumber) {
         if (cardNumber == null || cardNumber.length() < 4) {
             return "****";
         }
-        String lastFour = cardNumber.substring(cardNumber.length() - 4);
-        return "**** **** **** " + lastFour;
+        return MASK_PREFIX + lastFour(cardNumber);
+    }
+
+    /**
+     * Маскированный номер карты по открыто хранимым последним цифрам, без расшифровки.
+     * Номер карты, у которой card_last_four еще не заполнен, расшифровывается
+     */
+    public String maskStoredCardNumber(Card card) {
+        if (card.getCardLastFour() != null) {
+            return MASK_PREFIX + card.getCardLastFour();
+        }
+        return maskCardNumber(decrypt(card.getCardNumber()));
+    }
+
+    /**
+     * Последние четыре цифры номера карты (хранятся открыто для поиска)
+     */
+    public String lastFour(String cardNumber) {
+        return cardNumber.substring(cardNumber.length() - 4);
+    }
+
+    private byte[] nextIv() {
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        int stripe = ThreadLocalRandom.current().nextInt(secureRandoms.length);
+        ReentrantLock lock = secureRandomLocks[stripe];
+        lock.lock();
+        try {
+            secureRandoms[stripe].nextBytes(iv);
+        } finally {
+            lock.unlock();
+        }
+        return iv;
+    }
+
+    private static SecureRandom createSecureRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    /**
+     * Ключ HMAC выводится из ключа шифрования, чтобы не использовать один ключ для двух алгоритмов
+     */
+    private static byte[] deriveHashKey(String key) {
+        try {
+            return MessageDigest.getInstance("SHA-256")
+                    .digest((HASH_KEY_CONTEXT + key).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new EncryptionException("Ошибка инициализации ключа хэширования", e);
+        }
     }
 }
@@ -0,0 +1,56 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.event.OutboxMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Доставка событий outbox в локальный NDJSON-файл (для тестирования и отладки).
+ * Порция дописывается одним вызовом и сбрасывается на диск до подтверждения.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.sink", havingValue = "file")
+public class FileOutboxSink implements OutboxEventSink {
+
+    private final ObjectMapper objectMapper;
+    private final Path file;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public FileOutboxSink(ObjectMapper objectMapper,
+                          @Value("${app.outbox.file:outbox/events.ndjson}") String file) {
+        this.objectMapper = objectMapper;
+        this.file = Paths.get(file);
+    }
+
+    @Override
+    public void publish(List<OutboxMessage> messages) throws IOException {
+        // ReentrantLock вместо synchronized: запись на диск не закрепляет виртуальный поток за носителем
+        lock.lock();
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC)) {
+                for (OutboxMessage message : messages) {
+                    writer.write(objectMapper.writeValueAsString(message));
+                    writer.write('\n');
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
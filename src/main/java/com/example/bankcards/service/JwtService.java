@@ -1,30 +1,44 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.security.JwtKeyRing;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.MalformedJwtException;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 /**
- * Сервис для работы с JWT токенами
+ * Сервис для работы с JWT токенами.
+ * <p>
+ * Access-токен короткоживущий и содержит роли пользователя, поэтому проверяется
+ * только криптографически, без обращения к БД; продление выполняется refresh-токеном.
+ * Ключи подписи и проверки — {@link JwtKeyRing}.
  */
 @Service
+@RequiredArgsConstructor
 public class JwtService {
 
-    @Value("${app.jwt.secret:MySecretKeyForJWTTokenGeneration12345678901234567890}")
-    private String secretKey;
+    static final String ROLES_CLAIM = "roles";
+    // iat хранится с точностью до секунды, для сравнения с моментом отзыва нужно время выдачи в мс
+    static final String ISSUED_AT_MILLIS_CLAIM = "iat_ms";
 
-    @Value("${app.jwt.expiration:86400000}") // 24 часа в миллисекундах
+    @Value("${app.jwt.expiration:900000}") // 15 минут в миллисекундах
     private long jwtExpiration;
 
+    private final JwtKeyRing keyRing;
+
     /**
      * Извлечение username из токена
      */
@@ -40,11 +54,47 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Разбор и проверка подписи и срока действия токена
+     */
+    public Claims parseToken(String token) {
+        return extractAllClaims(token);
+    }
+
+    /**
+     * Время выдачи токена с точностью до миллисекунды; для токенов без iat_ms — iat
+     */
+    public Date getIssuedAt(Claims claims) {
+        Long issuedAtMillis = claims.get(ISSUED_AT_MILLIS_CLAIM, Long.class);
+        return issuedAtMillis != null ? new Date(issuedAtMillis) : claims.getIssuedAt();
+    }
+
+    /**
+     * Построение пользователя из claims проверенного токена без обращения к БД
+     */
+    public UserDetails toUserDetails(Claims claims) {
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        if (roles == null) {
+            throw new MalformedJwtException("В токене отсутствуют роли");
+        }
+        List<GrantedAuthority> authorities = roles.stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role.toString()))
+                .toList();
+        return User.withUsername(claims.getSubject())
+                .password("")
+                .authorities(authorities)
+                .build();
+    }
+
     /**
      * Генерация токена для пользователя
      */
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(ROLES_CLAIM, userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList());
+        return generateToken(claims, userDetails);
     }
 
     /**
@@ -69,14 +119,15 @@ public class JwtService {
             UserDetails userDetails,
             long expiration
     ) {
-        return Jwts
+        long now = System.currentTimeMillis();
+        return keyRing.sign(Jwts
                 .builder()
                 .claims(extraClaims)
+                .claim(ISSUED_AT_MILLIS_CLAIM, now)
+                .id(UUID.randomUUID().toString())
                 .subject(userDetails.getUsername())
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey())
-                .compact();
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + expiration)));
     }
 
     /**
@@ -105,19 +156,6 @@ public class JwtService {
      * Извлечение всех claims из токена
      */
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parser()
-                .verifyWith(getSignInKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
-
-    /**
-     * Получение ключа для подписи
-     */
-    private javax.crypto.SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return keyRing.parser().parseSignedClaims(token).getPayload();
     }
 }
@@ -0,0 +1,18 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.event.OutboxMessage;
+
+import java.util.List;
+
+/**
+ * Получатель событий outbox. Порция передается в порядке записи; при исключении
+ * порция не помечается отправленной и будет доставлена повторно (at-least-once),
+ * поэтому получатели должны быть идемпотентны по ID события.
+ */
+public interface OutboxEventSink {
+
+    /**
+     * Доставка порции событий
+     */
+    void publish(List<OutboxMessage> messages) throws Exception;
+}
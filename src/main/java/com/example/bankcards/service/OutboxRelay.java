@@ -0,0 +1,164 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.event.OutboxMessage;
+import com.example.bankcards.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Релей transactional outbox: вычитывает неотправленные события порциями в порядке ID,
+ * передает их получателю и помечает отправленными в той же транзакции.
+ * Если получатель завершился ошибкой, транзакция откатывается и порция будет доставлена повторно.
+ * <p>
+ * Порции отправляет только один узел: каждая транзакция релея берет advisory-блокировку, и узел,
+ * не получивший ее, пропускает проход. Иначе узлы с SKIP LOCKED отправляли бы соседние порции
+ * параллельно и получатель видел бы события не в порядке ID.
+ */
+@Service
+@Slf4j
+public class OutboxRelay {
+
+    private static final String LOCK_KEY = "outbox-relay";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxEventSink sink;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration retention;
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter publishedCounter;
+    private final Timer relayTimer;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       OutboxEventSink sink,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.outbox.relay.batch-size:200}") int batchSize,
+                       @Value("${app.outbox.relay.max-batches:20}") int maxBatches,
+                       @Value("${app.outbox.retention:P1D}") Duration retention) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.sink = sink;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.retention = retention;
+
+        Gauge.builder("bankcards.outbox.backlog", backlog, AtomicLong::get)
+                .description("Количество неотправленных событий outbox")
+                .register(meterRegistry);
+        Gauge.builder("bankcards.outbox.lag", lagMillis, AtomicLong::get)
+                .description("Возраст самого старого неотправленного события, мс")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.publishedCounter = Counter.builder("bankcards.outbox.published")
+                .description("Количество доставленных событий outbox")
+                .register(meterRegistry);
+        this.relayTimer = Timer.builder("bankcards.outbox.relay.duration")
+                .description("Длительность прохода релея outbox")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Периодическая доставка событий
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.relay.interval:1000}")
+    public void relay() {
+        relayTimer.record(this::drain);
+    }
+
+    /**
+     * Доставка накопившихся событий; возвращает количество доставленных событий
+     */
+    public long drain() {
+        Pageable batch = PageRequest.of(0, batchSize);
+        long published = 0;
+
+        try {
+            for (int i = 0; i < maxBatches; i++) {
+                Integer count = transactionTemplate.execute(status -> publishBatch(batch));
+                int delivered = count != null ? count : 0;
+                published += delivered;
+                if (delivered < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Ошибка доставки событий outbox, порция будет отправлена повторно: {}", e.getMessage());
+        }
+
+        refreshLag();
+        return published;
+    }
+
+    /**
+     * Удаление отправленных событий старше срока хранения
+     */
+    @Scheduled(cron = "${app.outbox.cleanup-cron:0 30 * * * *}")
+    public void cleanup() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minus(retention)));
+        if (deleted != null && deleted > 0) {
+            log.debug("Удалено отправленных событий outbox: {}", deleted);
+        }
+    }
+
+    private int publishBatch(Pageable batch) {
+        if (!outboxEventRepository.tryRelayLock(LOCK_KEY)) {
+            log.debug("Релей outbox работает на другом узле, проход пропущен");
+            return 0;
+        }
+        List<OutboxEvent> events = outboxEventRepository.findUnpublished(batch);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            sink.publish(events.stream().map(this::toMessage).toList());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        events.forEach(event -> event.setPublishedAt(now));
+        outboxEventRepository.saveAll(events);
+        publishedCounter.increment(events.size());
+        return events.size();
+    }
+
+    private void refreshLag() {
+        backlog.set(outboxEventRepository.countByPublishedAtIsNull());
+        LocalDateTime oldest = outboxEventRepository.findOldestUnpublishedCreatedAt();
+        lagMillis.set(oldest != null ? Duration.between(oldest, LocalDateTime.now()).toMillis() : 0);
+    }
+
+    private OutboxMessage toMessage(OutboxEvent event) {
+        return new OutboxMessage(
+                event.getId(),
+                event.getAggregateType(),
+                event.getAggregateId(),
+                event.getEventType(),
+                event.getPayload(),
+                event.getCreatedAt()
+        );
+    }
+}
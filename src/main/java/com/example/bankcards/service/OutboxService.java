@@ -0,0 +1,90 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.event.CardExpiringEvent;
+import com.example.bankcards.event.TransferEvent;
+import com.example.bankcards.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сервис записи событий в transactional outbox.
+ * Вызывается только внутри транзакции, изменяющей состояние, чтобы событие и изменение
+ * фиксировались атомарно.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(propagation = Propagation.MANDATORY)
+public class OutboxService {
+
+    static final String TRANSACTION_AGGREGATE = "TRANSACTION";
+    static final String TRANSFER_EVENT_PREFIX = "TRANSFER_";
+    static final String CARD_AGGREGATE = "CARD";
+    static final String CARD_EXPIRING_EVENT = "CARD_EXPIRING";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Запись события о текущем состоянии перевода
+     */
+    public void recordTransferEvent(Transaction transaction) {
+        TransferEvent event = new TransferEvent(
+                transaction.getId(),
+                transaction.getFromCard().getId(),
+                transaction.getToCard().getId(),
+                transaction.getAmount(),
+                transaction.getStatus(),
+                transaction.getTransactionDate(),
+                transaction.getCompletedAt()
+        );
+
+        OutboxEvent outboxEvent = OutboxEvent.builder()
+                .aggregateType(TRANSACTION_AGGREGATE)
+                .aggregateId(transaction.getId())
+                .eventType(TRANSFER_EVENT_PREFIX + transaction.getStatus().name())
+                .payload(toJson(event))
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        outboxEventRepository.save(outboxEvent);
+        log.debug("Событие {} для перевода с ID: {} записано в outbox", outboxEvent.getEventType(), transaction.getId());
+    }
+
+    /**
+     * Запись уведомления о скором истечении срока действия карты.
+     * Возвращает false, если уведомление для карты уже записано (повторный запуск задачи)
+     */
+    public boolean recordCardExpiringEvent(CardExpiringEvent event) {
+        if (outboxEventRepository.existsByAggregateTypeAndAggregateIdAndEventType(
+                CARD_AGGREGATE, event.cardId(), CARD_EXPIRING_EVENT)) {
+            return false;
+        }
+
+        outboxEventRepository.save(OutboxEvent.builder()
+                .aggregateType(CARD_AGGREGATE)
+                .aggregateId(event.cardId())
+                .eventType(CARD_EXPIRING_EVENT)
+                .payload(toJson(event))
+                .createdAt(LocalDateTime.now())
+                .build());
+        return true;
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать событие outbox", e);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.event.CacheInvalidationEvent;
+import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.TokenRevocationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Сервис выдачи и ротации refresh-токенов.
+ * <p>
+ * Каждый обмен помечает токен использованным и выдает новый из того же семейства.
+ * Повторное предъявление использованного или отозванного токена считается утечкой:
+ * отзывается все семейство и действующие access-токены пользователя.
+ */
+@Service
+@Slf4j
+@Transactional
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+    private static final String INVALID_TOKEN_MESSAGE = "Недействительный refresh-токен";
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final TokenRevocationRegistry revocationRegistry;
+    private final CacheInvalidationBus invalidationBus;
+    private final Duration refreshTokenTtl;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               UserRepository userRepository,
+                               TokenRevocationRegistry revocationRegistry,
+                               CacheInvalidationBus invalidationBus,
+                               @Value("${app.jwt.refresh-expiration:P14D}") Duration refreshTokenTtl) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.revocationRegistry = revocationRegistry;
+        this.invalidationBus = invalidationBus;
+        this.refreshTokenTtl = refreshTokenTtl;
+    }
+
+    /**
+     * Выданный refresh-токен и владелец
+     */
+    public record IssuedToken(String token, String username) {}
+
+    /**
+     * Выдача refresh-токена нового семейства (при входе или регистрации)
+     */
+    public String issue(String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UserNotFoundException("Пользователь не найден: " + username));
+        return create(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Обмен refresh-токена на новый. Отзыв семейства при повторном использовании
+     * фиксируется, несмотря на исключение
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public IssuedToken rotate(String rawToken) {
+        RefreshToken token = refreshTokenRepository.findByTokenHashForUpdate(hash(rawToken))
+                .orElseThrow(() -> new BadCredentialsException(INVALID_TOKEN_MESSAGE));
+        LocalDateTime now = LocalDateTime.now();
+        User user = token.getUser();
+
+        if (token.isConsumed()) {
+            int revoked = refreshTokenRepository.revokeFamily(token.getFamilyId(), now);
+            revokeAccessTokens(user);
+            log.warn("Повторное использование refresh-токена пользователя {}: отозвано токенов семейства {}",
+                    user.getUsername(), revoked);
+            throw new BadCredentialsException(INVALID_TOKEN_MESSAGE);
+        }
+        if (token.isExpired(now) || !Boolean.TRUE.equals(user.getEnabled())) {
+            throw new BadCredentialsException(INVALID_TOKEN_MESSAGE);
+        }
+
+        token.setUsedAt(now);
+        String newToken = create(user, token.getFamilyId());
+        log.debug("Refresh-токен пользователя {} обновлен", user.getUsername());
+        return new IssuedToken(newToken, user.getUsername());
+    }
+
+    /**
+     * Отзыв семейства, к которому относится токен (выход из системы)
+     */
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHashForUpdate(hash(rawToken)).ifPresent(token -> {
+            refreshTokenRepository.revokeFamily(token.getFamilyId(), LocalDateTime.now());
+            log.info("Refresh-токены сеанса пользователя {} отозваны", token.getUser().getUsername());
+        });
+    }
+
+    /**
+     * Отзыв всех refresh- и access-токенов пользователя
+     */
+    public void revokeAll(User user) {
+        int revoked = refreshTokenRepository.revokeAllByUserId(user.getId(), LocalDateTime.now());
+        revokeAccessTokens(user);
+        log.info("Отозваны все токены пользователя {} (refresh-токенов: {})", user.getUsername(), revoked);
+    }
+
+    /**
+     * Отзыв access-токенов пользователя на этом узле и на остальных после фиксации транзакции.
+     * Момент отзыва — после фиксации: токен, выданный параллельным обновлением по еще не
+     * измененным данным (например, со снятой ролью), окажется выданным раньше отзыва
+     */
+    public void revokeAccessTokens(User user) {
+        Long userId = user.getId();
+        String username = user.getUsername();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            revokeAccessTokensNow(userId, username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                revokeAccessTokensNow(userId, username);
+            }
+        });
+    }
+
+    private void revokeAccessTokensNow(Long userId, String username) {
+        long revokedAt = System.currentTimeMillis();
+        revocationRegistry.revokeUser(username, revokedAt);
+        invalidationBus.publishUserRevocations(Map.of(userId, revokedAt));
+    }
+
+    /**
+     * Отзыв access-токенов пользователей, инвалидированных другим узлом, с временем отзыва узла-источника.
+     * Токены, выданные любым узлом после фиксации изменения, остаются действительными
+     * (при условии синхронизированных часов узлов).
+     * Полная очистка на отзывы не влияет: пропущенные при обрыве отзывы истекают вместе с access-токенами
+     */
+    @EventListener
+    @Transactional(readOnly = true)
+    public void onRemoteInvalidation(CacheInvalidationEvent event) {
+        if (event.userRevocations().isEmpty()) {
+            return;
+        }
+        userRepository.findAllById(event.userRevocations().keySet())
+                .forEach(user -> revocationRegistry.revokeUser(user.getUsername(),
+                        event.userRevocations().get(user.getId())));
+    }
+
+    /**
+     * Срок действия refresh-токена
+     */
+    public Duration getRefreshTokenTtl() {
+        return refreshTokenTtl;
+    }
+
+    /**
+     * Удаление истекших токенов
+     */
+    @Scheduled(cron = "${app.jwt.refresh-cleanup-cron:0 45 3 * * *}")
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpiredBefore(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Удалено истекших refresh-токенов: {}", deleted);
+        }
+    }
+
+    private String create(User user, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        LocalDateTime now = LocalDateTime.now();
+        refreshTokenRepository.save(RefreshToken.builder()
+                .user(user)
+                .familyId(familyId)
+                .tokenHash(hash(rawToken))
+                .createdAt(now)
+                .expiresAt(now.plus(refreshTokenTtl))
+                .build());
+        return rawToken;
+    }
+
+    /**
+     * Токен содержит 256 бит случайности, поэтому достаточно SHA-256 без соли
+     */
+    static String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Алгоритм SHA-256 недоступен", e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.enums.RoleName;
+import com.example.bankcards.repository.RoleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Кеш ролей в памяти.
+ * <p>
+ * Таблица ролей содержит несколько неизменяемых строк, поэтому роли загружаются один раз
+ * в {@link EnumMap}; повторная загрузка выполняется только при промахе. Возвращаемые
+ * сущности отсоединены от контекста и используются как ссылки в связях пользователя.
+ */
+@Component
+@Slf4j
+public class RoleCache {
+
+    private final RoleRepository roleRepository;
+    private final Counter hits;
+    private final Counter misses;
+    private volatile Map<RoleName, Role> roles = Collections.emptyMap();
+
+    public RoleCache(RoleRepository roleRepository, MeterRegistry meterRegistry) {
+        this.roleRepository = roleRepository;
+        this.hits = Counter.builder("cache.gets")
+                .tag("cache", "roles")
+                .tag("result", "hit")
+                .description("Количество обращений к кешу ролей")
+                .register(meterRegistry);
+        this.misses = Counter.builder("cache.gets")
+                .tag("cache", "roles")
+                .tag("result", "miss")
+                .description("Количество обращений к кешу ролей")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Предзагрузка ролей после запуска приложения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        reload();
+    }
+
+    /**
+     * Роль по названию
+     */
+    public Optional<Role> findByName(RoleName name) {
+        Role role = roles.get(name);
+        if (role != null) {
+            hits.increment();
+            return Optional.of(role);
+        }
+        misses.increment();
+        return Optional.ofNullable(reload().get(name));
+    }
+
+    private synchronized Map<RoleName, Role> reload() {
+        Map<RoleName, Role> loaded = new EnumMap<>(RoleName.class);
+        for (Role role : roleRepository.findAll()) {
+            loaded.put(role.getName(), role);
+        }
+        roles = Collections.unmodifiableMap(loaded);
+        log.debug("Загружено ролей в кеш: {}", loaded.size());
+        return roles;
+    }
+}
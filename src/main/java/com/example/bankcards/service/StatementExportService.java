@@ -0,0 +1,118 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.response.TransactionResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.RoleName;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.ForbiddenOperationException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.util.StatementFormat;
+import com.example.bankcards.util.StatementWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Сервис потоковой выгрузки выписки по карте (CSV / NDJSON).
+ * Строки читаются курсором и сразу пишутся в выходной поток, поэтому расход памяти
+ * не зависит от количества транзакций.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class StatementExportService {
+
+    private final TransactionRepository transactionRepository;
+    private final CardRepository cardRepository;
+    private final UserService userService;
+    private final EncryptionService encryptionService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Проверка доступа к выписке карты.
+     * Вызывается до начала записи ответа, чтобы ошибки доступа возвращались обычным JSON-ответом.
+     */
+    public void checkCardAccess(Long cardId, String username) {
+        Card card = cardRepository.findById(cardId)
+                .orElseThrow(() -> new CardNotFoundException("Карта с ID " + cardId + " не найдена"));
+
+        if (!card.getUser().getUsername().equals(username)) {
+            User user = userService.findByUsername(username);
+            if (!userService.hasRole(user.getId(), RoleName.ROLE_ADMIN)) {
+                throw new ForbiddenOperationException("Недостаточно прав для доступа к карте");
+            }
+        }
+    }
+
+    /**
+     * Выгрузка всех переводов карты в выходной поток
+     *
+     * @return количество выгруженных транзакций
+     */
+    public long exportCardTransactions(Long cardId, StatementFormat format, OutputStream outputStream) throws IOException {
+        log.debug("Выгрузка выписки карты с ID: {} в формате {}", cardId, format);
+
+        StatementWriter writer = StatementWriter.create(format, outputStream, objectMapper);
+        // Маскированные номера кэшируются по ID карты: контрагентов в выписке немного,
+        // и расшифровывать номер для каждой строки не нужно
+        Map<Long, String> maskedNumbers = new HashMap<>();
+        long rows = 0;
+
+        writer.writeHeader();
+        try (Stream<Transaction> transactions = transactionRepository.streamByCardId(cardId)) {
+            Iterator<Transaction> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                Transaction transaction = iterator.next();
+                writer.writeRow(mapToResponse(transaction, maskedNumbers));
+                // Отсоединяем транзакцию, чтобы контекст персистентности не рос вместе с выпиской
+                entityManager.detach(transaction);
+                rows++;
+            }
+        }
+        writer.flush();
+
+        log.debug("Выписка карты с ID: {} выгружена, строк: {}", cardId, rows);
+        return rows;
+    }
+
+    /**
+     * Преобразование Transaction в TransactionResponse
+     */
+    private TransactionResponse mapToResponse(Transaction transaction, Map<Long, String> maskedNumbers) {
+        Card fromCard = transaction.getFromCard();
+        Card toCard = transaction.getToCard();
+
+        return new TransactionResponse(
+                transaction.getId(),
+                fromCard.getId(),
+                maskedNumbers.computeIfAbsent(fromCard.getId(), id -> maskCardNumber(fromCard)),
+                toCard.getId(),
+                maskedNumbers.computeIfAbsent(toCard.getId(), id -> maskCardNumber(toCard)),
+                transaction.getAmount(),
+                transaction.getDescription(),
+                transaction.getStatus(),
+                transaction.getTransactionDate(),
+                transaction.getCompletedAt(),
+                transaction.getErrorMessage()
+        );
+    }
+
+    private String maskCardNumber(Card card) {
+        return encryptionService.maskCardNumber(encryptionService.decrypt(card.getCardNumber()));
+    }
+}
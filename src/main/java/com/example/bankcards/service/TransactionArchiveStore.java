@@ -0,0 +1,198 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.util.TransactionSegment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Локальное хранилище архива переводов: каталог на каждый месяц, в нем неизменяемые сегменты
+ * {@link TransactionSegment}. Сегмент записывается во временный файл и атомарно переименовывается,
+ * поэтому читатели видят только полностью записанные сегменты.
+ * <p>
+ * При нескольких узлах каталог должен быть общим.
+ */
+@Component
+@Slf4j
+public class TransactionArchiveStore {
+
+    private static final DateTimeFormatter MONTH_DIRECTORY = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private volatile NavigableSet<YearMonth> months;
+
+    public TransactionArchiveStore(@Value("${app.transactions.archive.dir:archive/transactions}") String directory) {
+        this.directory = Paths.get(directory);
+        this.months = scanMonths();
+    }
+
+    /**
+     * Запись сегмента строк одного месяца
+     */
+    public Path append(YearMonth month, List<TransactionSegment.Row> rows) throws IOException {
+        Path monthDirectory = Files.createDirectories(directory.resolve(month.format(MONTH_DIRECTORY)));
+        String name = "segment-" + System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        Path temp = monthDirectory.resolve(name + TEMP_SUFFIX);
+        Path segment = monthDirectory.resolve(name + SEGMENT_SUFFIX);
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            TransactionSegment.write(rows, out);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, segment, StandardCopyOption.ATOMIC_MOVE);
+
+        NavigableSet<YearMonth> updated = new TreeSet<>(months);
+        updated.add(month);
+        months = Collections.unmodifiableNavigableSet(updated);
+        return segment;
+    }
+
+    /**
+     * Есть ли архивные месяцы, пересекающиеся с периодом [from, to); null — без ограничения
+     */
+    public boolean overlaps(LocalDateTime from, LocalDateTime to) {
+        return !monthsInRange(from, to).isEmpty();
+    }
+
+    /**
+     * Самые новые архивные переводы карты за период [from, to) и общее количество переводов карты за период.
+     * <p>
+     * Месяцы читаются от новых к старым. Колонки сегментов распаковываются, пока не набрано limit строк
+     * (месяц дочитывается целиком: сегменты одного месяца пересекаются по датам) и пока сегмент содержит
+     * строки не старше notOlderThan (null — без ограничения). Для остальных сегментов количество берется
+     * из индекса футера; строки на границах периода считаются по датам. Повторно заархивированная
+     * после сбоя строка в непрочитанных сегментах может быть учтена в количестве дважды.
+     *
+     * @return строки в порядке (дата, ID) по убыванию — не меньше min(limit, всего) самых новых
+     */
+    public ArchivedRows findLatestByCard(long cardId, LocalDateTime from, LocalDateTime to,
+                                         int limit, LocalDateTime notOlderThan) {
+        List<TransactionSegment.Row> result = new ArrayList<>();
+        Set<Long> seenIds = new HashSet<>();
+        long total = 0;
+        for (YearMonth month : monthsInRange(from, to).descendingSet()) {
+            boolean collecting = result.size() < limit;
+            for (Path file : segments(month)) {
+                try (TransactionSegment segment = TransactionSegment.open(file)) {
+                    if ((from != null && segment.getMaxDate().isBefore(from))
+                            || (to != null && !segment.getMinDate().isBefore(to))) {
+                        continue;
+                    }
+                    boolean inside = (from == null || !segment.getMinDate().isBefore(from))
+                            && (to == null || segment.getMaxDate().isBefore(to));
+                    boolean needed = collecting && (notOlderThan == null || !segment.getMaxDate().isBefore(notOlderThan));
+                    if (inside && !needed) {
+                        total += segment.countByCard(cardId);
+                        continue;
+                    }
+                    for (TransactionSegment.Row row : segment.findByCard(cardId)) {
+                        // Повторно заархивированная строка (после сбоя фиксации) учитывается один раз
+                        if ((from == null || !row.transactionDate().isBefore(from))
+                                && (to == null || row.transactionDate().isBefore(to))
+                                && seenIds.add(row.id())) {
+                            total++;
+                            if (needed) {
+                                result.add(row);
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Ошибка чтения сегмента архива " + file, e);
+                }
+            }
+        }
+        result.sort(Comparator.comparing(TransactionSegment.Row::transactionDate)
+                .thenComparingLong(TransactionSegment.Row::id)
+                .reversed());
+        return new ArchivedRows(result, total);
+    }
+
+    /**
+     * Прочитанные строки архива и общее количество строк карты за период
+     */
+    public record ArchivedRows(List<TransactionSegment.Row> rows, long total) {
+    }
+
+    /**
+     * Перечитывание списка месяцев (сегменты могут дописывать другие узлы).
+     * По расписанию вызывается {@link TransactionArchiver}, только при включенной архивации
+     */
+    public void rescan() {
+        months = scanMonths();
+    }
+
+    private NavigableSet<YearMonth> monthsInRange(LocalDateTime from, LocalDateTime to) {
+        NavigableSet<YearMonth> result = months;
+        if (from != null) {
+            result = result.tailSet(YearMonth.from(from), true);
+        }
+        if (to != null) {
+            // Конец полуинтервала на первой секунде месяца этот месяц не включает
+            YearMonth last = YearMonth.from(to.minusNanos(1));
+            result = result.headSet(last, true);
+        }
+        return result;
+    }
+
+    private List<Path> segments(YearMonth month) {
+        Path monthDirectory = directory.resolve(month.format(MONTH_DIRECTORY));
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(monthDirectory, "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка чтения каталога архива " + monthDirectory, e);
+        }
+        return files;
+    }
+
+    private NavigableSet<YearMonth> scanMonths() {
+        NavigableSet<YearMonth> found = new TreeSet<>();
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> entries = Files.list(directory)) {
+                entries.filter(Files::isDirectory).forEach(path -> {
+                    try {
+                        found.add(YearMonth.parse(path.getFileName().toString(), MONTH_DIRECTORY));
+                    } catch (DateTimeParseException e) {
+                        log.debug("Каталог {} не относится к архиву переводов", path);
+                    }
+                });
+            } catch (IOException e) {
+                log.error("Не удалось прочитать каталог архива переводов {}: {}", directory, e.getMessage());
+                return months != null ? months : Collections.emptyNavigableSet();
+            }
+        }
+        return Collections.unmodifiableNavigableSet(found);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.enums.TransactionStatus;
+import com.example.bankcards.util.TransactionSegment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Перенос старых завершенных переводов из БД в архив сегментов.
+ * <p>
+ * Порция строк старше границы блокируется ({@code FOR UPDATE SKIP LOCKED}), записывается
+ * сегментами по месяцам и удаляется из БД в той же транзакции. Если фиксация не удалась после
+ * записи сегмента, строки окажутся и в архиве, и в БД: при чтении совпадающие ID берутся из БД,
+ * а при следующем проходе строки будут заархивированы повторно.
+ */
+@Component
+@ConditionalOnProperty(name = "app.transactions.archive.enabled", havingValue = "true")
+@Slf4j
+public class TransactionArchiver {
+
+    private static final String SELECT_SQL =
+            "SELECT id, from_card_id, to_card_id, amount, description, status, transaction_date, completed_at, error_message " +
+            "FROM transactions WHERE status = ? AND transaction_date < ? " +
+            "ORDER BY transaction_date, id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    // Ключ секционирования в условии: удаление идет по первичному ключу нужной секции
+    private static final String DELETE_SQL = "DELETE FROM transactions WHERE id = ? AND transaction_date = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionArchiveStore archiveStore;
+    private final int afterMonths;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Counter archivedCounter;
+
+    public TransactionArchiver(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               TransactionArchiveStore archiveStore,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.transactions.archive.after-months:12}") int afterMonths,
+                               @Value("${app.transactions.archive.batch-size:1000}") int batchSize,
+                               @Value("${app.transactions.archive.max-batches:100}") int maxBatches) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archiveStore = archiveStore;
+        this.afterMonths = afterMonths;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.archivedCounter = Counter.builder("bankcards.transactions.archived")
+                .description("Количество переводов, перенесенных в архив")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Архивация переводов за месяцы старше app.transactions.archive.after-months.
+     * За один запуск обрабатывается не более max-batches порций
+     */
+    @Scheduled(cron = "${app.transactions.archive.cron:0 30 3 * * *}")
+    public int archive() {
+        LocalDateTime cutoff = YearMonth.now().minusMonths(afterMonths).atDay(1).atStartOfDay();
+        int archived = 0;
+
+        for (int i = 0; i < maxBatches; i++) {
+            Integer count = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            if (count == null || count == 0) {
+                break;
+            }
+            archived += count;
+            archivedCounter.increment(count);
+            if (count < batchSize) {
+                break;
+            }
+        }
+
+        if (archived > 0) {
+            log.info("Перенесено в архив переводов до {}: {}", cutoff.toLocalDate(), archived);
+        }
+        return archived;
+    }
+
+    /**
+     * Перечитывание каталога архива: сегменты могут дописывать другие узлы
+     */
+    @Scheduled(fixedDelayString = "${app.transactions.archive.rescan-interval:60000}")
+    public void rescanArchive() {
+        archiveStore.rescan();
+    }
+
+    private int archiveBatch(LocalDateTime cutoff) {
+        List<TransactionSegment.Row> rows = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> {
+            Timestamp completedAt = rs.getTimestamp("completed_at");
+            return new TransactionSegment.Row(
+                    rs.getLong("id"),
+                    rs.getLong("from_card_id"),
+                    rs.getLong("to_card_id"),
+                    rs.getBigDecimal("amount"),
+                    rs.getString("description"),
+                    rs.getString("status"),
+                    rs.getTimestamp("transaction_date").toLocalDateTime(),
+                    completedAt != null ? completedAt.toLocalDateTime() : null,
+                    rs.getString("error_message"));
+        }, TransactionStatus.COMPLETED.name(), Timestamp.valueOf(cutoff), batchSize);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        Map<YearMonth, List<TransactionSegment.Row>> byMonth = new TreeMap<>();
+        for (TransactionSegment.Row row : rows) {
+            byMonth.computeIfAbsent(YearMonth.from(row.transactionDate()), month -> new ArrayList<>()).add(row);
+        }
+        try {
+            for (Map.Entry<YearMonth, List<TransactionSegment.Row>> entry : byMonth.entrySet()) {
+                archiveStore.append(entry.getKey(), entry.getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка записи сегмента архива переводов", e);
+        }
+
+        List<Object[]> keys = new ArrayList<>(rows.size());
+        for (TransactionSegment.Row row : rows) {
+            keys.add(new Object[]{row.id(), Timestamp.valueOf(row.transactionDate())});
+        }
+        jdbcTemplate.batchUpdate(DELETE_SQL, keys);
+        return rows.size();
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обслуживание помесячных секций таблицы transactions.
+ * <p>
+ * При старте и раз в сутки создает секции текущего и следующих месяцев, чтобы новые переводы
+ * не попадали в секцию по умолчанию. Строки, все же попавшие в секцию по умолчанию, переносятся
+ * в создаваемую для их месяца секцию (иначе PostgreSQL не даст ее создать). При заданном сроке
+ * хранения отсоединяет секции старше него: отсоединенная секция остается отдельной таблицей
+ * с прежним именем и может быть выгружена или удалена без блокировки основной таблицы.
+ * <p>
+ * Каждая секция создается и отсоединяется в своей транзакции, чтобы не держать блокировки
+ * таблицы переводов на время всего обслуживания. Узлы согласуются advisory-блокировкой,
+ * которую берет каждый шаг.
+ */
+@Component
+@ConditionalOnProperty(name = "app.transactions.partitions.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class TransactionPartitionManager {
+
+    static final String PARTITION_PREFIX = "transactions_p";
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern PARTITION_NAME = Pattern.compile(PARTITION_PREFIX + "(\\d{6})");
+    private static final String LOCK_KEY = "transactions-partitions";
+
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_xact_lock(hashtext(?))";
+    private static final String PARTITION_EXISTS_SQL = "SELECT to_regclass(?) IS NOT NULL";
+    private static final String CREATE_PARTITION_SQL =
+            "CREATE TABLE %s PARTITION OF transactions FOR VALUES FROM ('%s') TO ('%s')";
+    private static final String DETACH_PARTITION_SQL = "ALTER TABLE transactions DETACH PARTITION %s";
+    private static final String LIST_PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = 'transactions'::regclass";
+    private static final String COUNT_DEFAULT_SQL = "SELECT count(*) FROM transactions_default";
+    private static final String DEFAULT_MONTHS_SQL =
+            "SELECT DISTINCT date_trunc('month', transaction_date)::date FROM transactions_default";
+    private static final String DEFAULT_HAS_ROWS_SQL =
+            "SELECT EXISTS (SELECT 1 FROM transactions_default WHERE transaction_date >= ? AND transaction_date < ?)";
+    private static final String CREATE_MOVING_SQL =
+            "CREATE TEMP TABLE transactions_moving (LIKE transactions) ON COMMIT DROP";
+    private static final String MOVE_OUT_OF_DEFAULT_SQL =
+            "WITH moved AS (DELETE FROM transactions_default WHERE transaction_date >= ? AND transaction_date < ? " +
+            "RETURNING *) INSERT INTO transactions_moving SELECT * FROM moved";
+    private static final String MOVE_INTO_PARTITION_SQL = "INSERT INTO transactions SELECT * FROM transactions_moving";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final AtomicLong defaultPartitionRows = new AtomicLong();
+
+    public TransactionPartitionManager(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${app.transactions.partitions.months-ahead:3}") int monthsAhead,
+                                       @Value("${app.transactions.partitions.retention-months:0}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+
+        Gauge.builder("bankcards.transactions.partitions.default.rows", defaultPartitionRows, AtomicLong::get)
+                .description("Количество переводов в секции по умолчанию (вне созданных помесячных секций)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Создание недостающих секций сразу после запуска
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        maintain();
+    }
+
+    /**
+     * Создание будущих секций, перенос строк из секции по умолчанию и отсоединение устаревших секций
+     */
+    @Scheduled(cron = "${app.transactions.partitions.cron:0 15 2 * * *}")
+    public void maintain() {
+        List<LocalDate> defaultMonths = jdbcTemplate.queryForList(DEFAULT_MONTHS_SQL, LocalDate.class);
+        for (YearMonth month : monthsToCreate(YearMonth.now(), monthsAhead, defaultMonths)) {
+            if (!inLockedTransaction("создания секции за " + month, () -> createPartition(month))) {
+                log.debug("Секции переводов обслуживаются другим узлом");
+                return;
+            }
+        }
+
+        if (retentionMonths > 0) {
+            YearMonth oldestKept = YearMonth.now().minusMonths(retentionMonths);
+            List<String> partitions = jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class);
+            for (String partition : expiredPartitions(partitions, oldestKept)) {
+                if (!inLockedTransaction("отсоединения секции " + partition, () -> detachPartition(partition))) {
+                    log.debug("Секции переводов обслуживаются другим узлом");
+                    return;
+                }
+            }
+        }
+
+        Long rows = jdbcTemplate.queryForObject(COUNT_DEFAULT_SQL, Long.class);
+        defaultPartitionRows.set(rows != null ? rows : 0);
+        if (defaultPartitionRows.get() > 0) {
+            log.error("В секции переводов по умолчанию осталось {} строк: перенести их в помесячные секции не удалось",
+                    defaultPartitionRows.get());
+        }
+    }
+
+    /**
+     * Шаг обслуживания в отдельной транзакции под advisory-блокировкой.
+     * Возвращает false, если блокировку держит другой узел; ошибка шага не прерывает остальные шаги
+     */
+    private boolean inLockedTransaction(String step, Runnable action) {
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK_SQL, Boolean.class, LOCK_KEY))) {
+                    return false;
+                }
+                action.run();
+                return true;
+            }));
+        } catch (DataAccessException e) {
+            log.error("Ошибка {} переводов: {}", step, e.getMessage());
+            return true;
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(PARTITION_EXISTS_SQL, Boolean.class, partition))) {
+            return;
+        }
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+
+        // Секцию нельзя создать, пока строки ее периода лежат в секции по умолчанию: они переносятся
+        // через временную таблицу в той же транзакции
+        boolean moveRows = Boolean.TRUE.equals(jdbcTemplate.queryForObject(DEFAULT_HAS_ROWS_SQL, Boolean.class, from, to));
+        if (moveRows) {
+            jdbcTemplate.execute(CREATE_MOVING_SQL);
+            jdbcTemplate.update(MOVE_OUT_OF_DEFAULT_SQL, from, to);
+        }
+        jdbcTemplate.execute(String.format(CREATE_PARTITION_SQL, partition, from.toLocalDate(), to.toLocalDate()));
+        if (moveRows) {
+            int moved = jdbcTemplate.update(MOVE_INTO_PARTITION_SQL);
+            log.warn("В секцию переводов {} перенесено {} строк из секции по умолчанию", partition, moved);
+        }
+    }
+
+    private void detachPartition(String partition) {
+        jdbcTemplate.execute(String.format(DETACH_PARTITION_SQL, partition));
+        log.info("Секция переводов {} отсоединена по сроку хранения", partition);
+    }
+
+    /**
+     * Месяцы, для которых нужны секции: текущий, monthsAhead следующих и месяцы строк в секции по умолчанию
+     */
+    static List<YearMonth> monthsToCreate(YearMonth current, int monthsAhead, List<LocalDate> defaultMonths) {
+        SortedSet<YearMonth> months = new TreeSet<>();
+        for (int i = 0; i <= monthsAhead; i++) {
+            months.add(current.plusMonths(i));
+        }
+        defaultMonths.forEach(month -> months.add(YearMonth.from(month)));
+        return new ArrayList<>(months);
+    }
+
+    /**
+     * Помесячные секции, целиком лежащие раньше указанного месяца
+     */
+    static List<String> expiredPartitions(List<String> partitions, YearMonth oldestKept) {
+        List<String> expired = new ArrayList<>();
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (matcher.matches() && YearMonth.parse(matcher.group(1), PARTITION_SUFFIX).isBefore(oldestKept)) {
+                expired.add(partition);
+            }
+        }
+        expired.sort(null);
+        return expired;
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.enums.TransactionStatus;
+import com.example.bankcards.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Восстановление зависших переводов в статусе PENDING.
+ * <p>
+ * Строки выбираются порциями с {@code FOR UPDATE SKIP LOCKED}, поэтому задачу можно запускать
+ * на нескольких узлах одновременно. Перевод записывается одной вставкой в транзакции, меняющей
+ * балансы ({@link TransactionService#createTransfer}): если PENDING-строка зафиксирована, балансы карт
+ * не изменялись, и перевод завершается статусом FAILED.
+ */
+@Service
+@Slf4j
+public class TransactionRecoveryService {
+
+    static final String RECOVERY_ERROR_MESSAGE = "Перевод не был завершен и отменен при восстановлении";
+
+    private final TransactionRepository transactionRepository;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration staleAfter;
+    private final int batchSize;
+    private final int maxBatches;
+    private final AtomicLong staleBacklog = new AtomicLong();
+    private final Timer sweepTimer;
+    private final Counter failedCounter;
+
+    public TransactionRecoveryService(TransactionRepository transactionRepository,
+                                      OutboxService outboxService,
+                                      PlatformTransactionManager transactionManager,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.transactions.recovery.stale-after:PT5M}") Duration staleAfter,
+                                      @Value("${app.transactions.recovery.batch-size:100}") int batchSize,
+                                      @Value("${app.transactions.recovery.max-batches:50}") int maxBatches) {
+        this.transactionRepository = transactionRepository;
+        this.outboxService = outboxService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.staleAfter = staleAfter;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+
+        Gauge.builder("bankcards.transactions.pending.stale", staleBacklog, AtomicLong::get)
+                .description("Количество зависших PENDING-переводов после последнего прохода")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("bankcards.transactions.recovery.duration")
+                .description("Длительность прохода восстановления зависших переводов")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("bankcards.transactions.recovery.resolved")
+                .tag("status", TransactionStatus.FAILED.name())
+                .description("Количество зависших переводов, завершенных при восстановлении")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Периодический проход по зависшим переводам
+     */
+    @Scheduled(fixedDelayString = "${app.transactions.recovery.interval:60000}",
+            initialDelayString = "${app.transactions.recovery.initial-delay:60000}")
+    public void sweep() {
+        sweepTimer.record(this::recoverStaleTransactions);
+    }
+
+    /**
+     * Завершение зависших переводов порциями; возвращает количество обработанных переводов
+     */
+    public long recoverStaleTransactions() {
+        LocalDateTime threshold = LocalDateTime.now().minus(staleAfter);
+        Pageable batch = PageRequest.of(0, batchSize, Sort.by("id"));
+        long resolved = 0;
+
+        for (int i = 0; i < maxBatches; i++) {
+            Integer processed = transactionTemplate.execute(status -> resolveBatch(threshold, batch));
+            int count = processed != null ? processed : 0;
+            resolved += count;
+            if (count < batchSize) {
+                break;
+            }
+        }
+
+        staleBacklog.set(transactionRepository.countByStatusAndTransactionDateBefore(TransactionStatus.PENDING, threshold));
+
+        if (resolved > 0) {
+            log.warn("Завершено зависших переводов: {}, осталось: {}", resolved, staleBacklog.get());
+        }
+        return resolved;
+    }
+
+    private int resolveBatch(LocalDateTime threshold, Pageable batch) {
+        List<Transaction> transactions = transactionRepository
+                .findByStatusAndTransactionDateBefore(TransactionStatus.PENDING, threshold, batch);
+        if (transactions.isEmpty()) {
+            return 0;
+        }
+
+        // Статус меняется одним UPDATE с ключом секционирования; сущности после него отсоединены
+        // и обновляются только для события outbox
+        List<Long> ids = transactions.stream().map(Transaction::getId).toList();
+        LocalDateTime fromDate = transactions.stream().map(Transaction::getTransactionDate).min(LocalDateTime::compareTo).orElseThrow();
+        LocalDateTime toDate = transactions.stream().map(Transaction::getTransactionDate).max(LocalDateTime::compareTo).orElseThrow();
+        LocalDateTime completedAt = LocalDateTime.now();
+        transactionRepository.markAllAsFailed(ids, fromDate, toDate, RECOVERY_ERROR_MESSAGE, completedAt);
+
+        for (Transaction transaction : transactions) {
+            transaction.markAsFailed(RECOVERY_ERROR_MESSAGE);
+            transaction.setCompletedAt(completedAt);
+            failedCounter.increment();
+            log.debug("Перевод с ID: {} помечен как неудачный при восстановлении", transaction.getId());
+        }
+        transactions.forEach(outboxService::recordTransferEvent);
+        return transactions.size();
+    }
+}
@@ -2,6 +2,8 @@ package com.example.bankcards.service;
 
 import com.example.bankcards.dto.response.BalanceResponse;
 import com.example.bankcards.dto.request.TransactionCreateRequest;
+import com.example.bankcards.dto.request.TransactionSearchRequest;
+import com.example.bankcards.dto.response.TransactionSliceResponse;
 import com.example.bankcards.dto.response.TransactionResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.enums.CardStatus;
@@ -9,22 +11,41 @@ import com.example.bankcards.entity.Transaction;
 import com.example.bankcards.entity.enums.RoleName;
 import com.example.bankcards.entity.enums.TransactionStatus;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.event.BalanceChangedEvent;
 import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.ForbiddenOperationException;
 import com.example.bankcards.exception.InsufficientFundsException;
 import com.example.bankcards.exception.InvalidTransactionException;
 import com.example.bankcards.exception.TransactionNotFoundException;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.TransactionSpecifications;
+import com.example.bankcards.util.TransactionCursor;
+import com.example.bankcards.util.TransactionSegment;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.access.AccessDeniedException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Сервис для управления транзакциями (переводами между картами)
@@ -35,15 +56,45 @@ import java.time.LocalDateTime;
 @Transactional
 public class TransactionService {
 
+    private static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+    private static final Sort HISTORY_SORT = Sort.by(Sort.Direction.DESC, "transactionDate", "id");
+    private static final String ARCHIVED_CARD_MASK = "**** **** **** ****";
+    private static final int TRANSFER_MAX_ATTEMPTS = 3;
+    private static final int ARCHIVE_ID_CHUNK = 1000;
+
     private final TransactionRepository transactionRepository;
     private final CardRepository cardRepository;
     private final UserService userService;
     private final EncryptionService encryptionService;
+    private final OutboxService outboxService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionArchiveStore archiveStore;
+    private final CardViewCache cardViewCache;
+    private final PlatformTransactionManager transactionManager;
 
     /**
-     * Создание перевода между картами
+     * Создание перевода между картами.
+     * Каждая попытка выполняется в отдельной транзакции: при конфликте версий карт (конкурентный
+     * перевод или изменение карты) транзакция откатывается и перевод повторяется с повторной
+     * проверкой баланса, не более TRANSFER_MAX_ATTEMPTS раз
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public TransactionResponse createTransfer(TransactionCreateRequest request, String username) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> doCreateTransfer(request, username));
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= TRANSFER_MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("Конфликт версий карт при переводе с карты {} на карту {}, попытка {} из {}",
+                        request.fromCardId(), request.toCardId(), attempt + 1, TRANSFER_MAX_ATTEMPTS);
+            }
+        }
+    }
+
+    private TransactionResponse doCreateTransfer(TransactionCreateRequest request, String username) {
         log.info("Создание перевода от пользователя: {} с карты {} на карту {} на сумму {}", 
                 username, request.fromCardId(), request.toCardId(), request.amount());
 
@@ -67,22 +118,31 @@ public class TransactionService {
                 .transactionDate(LocalDateTime.now())
                 .build();
 
-        Transaction savedTransaction = transactionRepository.save(transaction);
-
+        Transaction savedTransaction;
         try {
             // Выполняем перевод
             executeTransfer(fromCard, toCard, request.amount());
             
-            // Помечаем транзакцию как завершенную
-            savedTransaction.markAsCompleted();
-            savedTransaction = transactionRepository.save(savedTransaction);
-
-            log.info("Перевод успешно выполнен: {}", savedTransaction.getTransactionInfo());
-
+            // Перевод и запись о нем фиксируются одной транзакцией, поэтому строка сразу вставляется
+            // завершенной: последующий UPDATE по одному id проверял бы все секции таблицы
+            transaction.markAsCompleted();
+            savedTransaction = transactionRepository.save(transaction);
+            outboxService.recordTransferEvent(savedTransaction);
+
+            log.atInfo()
+                    .addKeyValue("transactionId", savedTransaction.getId())
+                    .addKeyValue("fromCardId", fromCard.getId())
+                    .addKeyValue("toCardId", toCard.getId())
+                    .addKeyValue("amount", request.amount())
+                    .log("Перевод успешно выполнен");
+
+        } catch (OptimisticLockingFailureException e) {
+            // Конфликт версий откатывает всю попытку, перевод будет повторен
+            throw e;
         } catch (Exception e) {
             // В случае ошибки помечаем транзакцию как неудачную
-            savedTransaction.markAsFailed("Ошибка выполнения перевода: " + e.getMessage());
-            transactionRepository.save(savedTransaction);
+            transaction.markAsFailed("Ошибка выполнения перевода: " + e.getMessage());
+            transactionRepository.save(transaction);
             
             log.error("Ошибка выполнения перевода: {}", e.getMessage(), e);
             throw new InvalidTransactionException("Не удалось выполнить перевод: " + e.getMessage());
@@ -118,17 +178,114 @@ public class TransactionService {
     }
 
     /**
-     * Получение переводов конкретной карты
+     * Получение переводов конкретной карты, опционально за период [from, to).
+     * Период ограничивает выборку секциями таблицы переводов за эти месяцы. Если период (в том числе
+     * открытый) захватывает заархивированные месяцы, строки БД объединяются со строками архива
      */
     @Transactional(readOnly = true)
-    public Page<TransactionResponse> getCardTransactions(Long cardId, String username, Pageable pageable) {
+    public Page<TransactionResponse> getCardTransactions(Long cardId, String username,
+                                                         LocalDateTime from, LocalDateTime to, Pageable pageable) {
         log.debug("Получение переводов карты с ID: {} для пользователя: {}", cardId, username);
 
         Card card = findCardById(cardId);
         validateCardAccess(card, username);
 
-        Page<Transaction> transactions = transactionRepository.findByCardId(cardId, pageable);
-        return transactions.map(this::mapToResponse);
+        if (archiveStore.overlaps(from, to)) {
+            return getCardTransactionsWithArchive(cardId, from, to, pageable);
+        }
+        if (from == null && to == null) {
+            return transactionRepository.findByCardId(cardId, pageable).map(this::mapToResponse);
+        }
+
+        Pageable sorted = pageable.getSort().isSorted() ? pageable
+                : PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), HISTORY_SORT);
+        return transactionRepository.findAll(cardPeriodFilter(cardId, from, to), sorted).map(this::mapToResponse);
+    }
+
+    /**
+     * Слияние строк БД и архива в порядке (дата, ID) по убыванию. Из БД читаются первые
+     * offset + size строк периода, из архива — столько же самых новых строк, начиная с последних месяцев;
+     * если окно БД заполнено, архивные сегменты старше его последней строки не распаковываются.
+     * Другая сортировка не поддерживается: строки архива упорядочены только по (дата, ID)
+     */
+    private Page<TransactionResponse> getCardTransactionsWithArchive(Long cardId, LocalDateTime from, LocalDateTime to,
+                                                                     Pageable pageable) {
+        if (pageable.getSort().isSorted() && !pageable.getSort().equals(HISTORY_SORT)) {
+            throw new InvalidTransactionException(
+                    "Для истории с архивными месяцами доступна только сортировка по дате и ID по убыванию");
+        }
+
+        int window = (int) pageable.getOffset() + pageable.getPageSize();
+        Page<Transaction> hot = transactionRepository.findAll(cardPeriodFilter(cardId, from, to),
+                PageRequest.of(0, window, HISTORY_SORT));
+        List<Transaction> hotRows = hot.getContent();
+        LocalDateTime oldestHot = hotRows.size() >= window ? hotRows.get(hotRows.size() - 1).getTransactionDate() : null;
+        TransactionArchiveStore.ArchivedRows archive = archiveStore.findLatestByCard(cardId, from, to, window, oldestHot);
+        List<TransactionSegment.Row> archived = archive.rows();
+
+        Set<Long> hotIds = new HashSet<>();
+        hotRows.forEach(transaction -> hotIds.add(transaction.getId()));
+
+        List<Object> merged = new ArrayList<>(window);
+        int h = 0;
+        int a = 0;
+        while (merged.size() < window && (h < hotRows.size() || a < archived.size())) {
+            if (a < archived.size() && hotIds.contains(archived.get(a).id())) {
+                a++;
+                continue;
+            }
+            boolean takeHot = a >= archived.size() || (h < hotRows.size()
+                    && compareHistory(hotRows.get(h).getTransactionDate(), hotRows.get(h).getId(),
+                    archived.get(a).transactionDate(), archived.get(a).id()) > 0);
+            merged.add(takeHot ? hotRows.get(h++) : archived.get(a++));
+        }
+
+        List<Object> pageRows = merged.subList(Math.min((int) pageable.getOffset(), merged.size()), merged.size());
+        Map<Long, String> archivedCardNumbers = maskArchivedCardNumbers(pageRows);
+        List<TransactionResponse> content = pageRows.stream()
+                .map(row -> row instanceof Transaction transaction
+                        ? mapToResponse(transaction)
+                        : mapArchivedToResponse((TransactionSegment.Row) row, archivedCardNumbers))
+                .toList();
+        long duplicates = countArchivedInDatabase(cardId, from, to, archived);
+        return new PageImpl<>(content, pageable, hot.getTotalElements() + archive.total() - duplicates);
+    }
+
+    /**
+     * Количество прочитанных архивных строк периода, которые еще остались в БД (архивация, не зафиксированная
+     * после записи сегмента). Считается по всем прочитанным строкам, а не только по окну страницы
+     */
+    private long countArchivedInDatabase(Long cardId, LocalDateTime from, LocalDateTime to,
+                                         List<TransactionSegment.Row> archived) {
+        long count = 0;
+        for (int start = 0; start < archived.size(); start += ARCHIVE_ID_CHUNK) {
+            List<Long> ids = archived.subList(start, Math.min(start + ARCHIVE_ID_CHUNK, archived.size())).stream()
+                    .map(TransactionSegment.Row::id)
+                    .toList();
+            count += transactionRepository.count(
+                    cardPeriodFilter(cardId, from, to).and(TransactionSpecifications.idIn(ids)));
+        }
+        return count;
+    }
+
+    /**
+     * Сравнение строк истории: положительное значение — первая строка новее
+     */
+    private static int compareHistory(LocalDateTime firstDate, long firstId, LocalDateTime secondDate, long secondId) {
+        int byDate = firstDate.compareTo(secondDate);
+        return byDate != 0 ? byDate : Long.compare(firstId, secondId);
+    }
+
+    private Specification<Transaction> cardPeriodFilter(Long cardId, LocalDateTime from, LocalDateTime to) {
+        List<Specification<Transaction>> filters = new ArrayList<>();
+        filters.add(TransactionSpecifications.involvesCard(cardId));
+        if (from != null) {
+            filters.add(TransactionSpecifications.dateFrom(from));
+        }
+        if (to != null) {
+            filters.add(TransactionSpecifications.dateBefore(to));
+        }
+        return Specification.allOf(filters);
     }
 
     /**
@@ -149,20 +306,28 @@ public class TransactionService {
      */
     @Transactional(readOnly = true)
     public BalanceResponse getCardBalance(Long cardId, String username) {
+        return getCardBalance(cardId, username, 0L);
+    }
+
+    /**
+     * Получение баланса карты не старше minVersion (версия, по которой построен ETag)
+     */
+    @Transactional(readOnly = true)
+    public BalanceResponse getCardBalance(Long cardId, String username, long minVersion) {
         log.debug("Получение баланса карты с ID: {} для пользователя: {}", cardId, username);
 
-        Card card = findCardById(cardId);
-        validateCardAccess(card, username);
+        CardView view = cardViewCache.get(cardId, minVersion,
+                id -> cardRepository.findById(id).map(card -> CardView.of(card, maskCardNumber(card))).orElse(null));
+        if (view == null) {
+            throw new CardNotFoundException("Карта с ID " + cardId + " не найдена");
+        }
+        validateCardAccess(view.ownerUsername(), username);
 
-        // Расшифровываем и маскируем номер карты
-        String decryptedCardNumber = encryptionService.decrypt(card.getCardNumber());
-        String maskedCardNumber = encryptionService.maskCardNumber(decryptedCardNumber);
-        
         return new BalanceResponse(
-                card.getId(),
-                maskedCardNumber,
-                card.getBalance(),
-                card.getCardHolderName()
+                view.id(),
+                view.maskedCardNumber(),
+                view.balance(),
+                view.cardHolderName()
         );
     }
 
@@ -199,20 +364,73 @@ public class TransactionService {
 
         User user = userService.findByUsername(username);
         if (!userService.hasRole(user.getId(), RoleName.ROLE_ADMIN)) {
-            throw new AccessDeniedException("Недостаточно прав для выполнения операции");
+            throw new ForbiddenOperationException("Недостаточно прав для выполнения операции");
         }
 
         Page<Transaction> transactions = transactionRepository.findAll(pageable);
         return transactions.map(this::mapToResponse);
     }
 
+    /**
+     * Поиск транзакций по фильтрам с keyset-пагинацией (только для администраторов).
+     * Порядок выдачи — (transactionDate DESC, id DESC), счетчик общего количества не строится
+     */
+    @Transactional(readOnly = true)
+    public TransactionSliceResponse searchTransactions(TransactionSearchRequest criteria, String username) {
+        log.info("Поиск транзакций администратором: {}", username);
+
+        User user = userService.findByUsername(username);
+        if (!userService.hasRole(user.getId(), RoleName.ROLE_ADMIN)) {
+            throw new ForbiddenOperationException("Недостаточно прав для выполнения операции");
+        }
+
+        List<Specification<Transaction>> filters = new ArrayList<>();
+        if (criteria.status() != null) {
+            filters.add(TransactionSpecifications.hasStatus(criteria.status()));
+        }
+        if (criteria.userId() != null) {
+            filters.add(TransactionSpecifications.involvesUser(criteria.userId()));
+        }
+        if (criteria.cardId() != null) {
+            filters.add(TransactionSpecifications.involvesCard(criteria.cardId()));
+        }
+        if (criteria.from() != null) {
+            filters.add(TransactionSpecifications.dateFrom(criteria.from()));
+        }
+        if (criteria.to() != null) {
+            filters.add(TransactionSpecifications.dateBefore(criteria.to()));
+        }
+        if (criteria.minAmount() != null) {
+            filters.add(TransactionSpecifications.amountAtLeast(criteria.minAmount()));
+        }
+        if (criteria.maxAmount() != null) {
+            filters.add(TransactionSpecifications.amountAtMost(criteria.maxAmount()));
+        }
+        if (criteria.cursor() != null) {
+            filters.add(TransactionSpecifications.after(TransactionCursor.decode(criteria.cursor())));
+        }
+
+        // Лишняя строка показывает, есть ли следующая страница
+        int size = criteria.size() != null ? criteria.size() : DEFAULT_SEARCH_PAGE_SIZE;
+        List<Transaction> rows = transactionRepository.findBy(Specification.allOf(filters), query -> query
+                .sortBy(HISTORY_SORT)
+                .project("fromCard", "toCard")
+                .limit(size + 1)
+                .all());
+
+        boolean hasNext = rows.size() > size;
+        List<Transaction> page = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? TransactionCursor.of(page.get(page.size() - 1)).encode() : null;
+        return new TransactionSliceResponse(page.stream().map(this::mapToResponse).toList(), nextCursor);
+    }
+
     /**
      * Валидация перевода
      */
     private void validateTransfer(Card fromCard, Card toCard, BigDecimal amount, User user) {
         // Проверяем, что обе карты принадлежат пользователю (только внутренние переводы)
         if (!fromCard.getUser().getId().equals(user.getId())) {
-            throw new AccessDeniedException("Карта отправителя не принадлежит пользователю");
+            throw new ForbiddenOperationException("Карта отправителя не принадлежит пользователю");
         }
         
         if (!toCard.getUser().getId().equals(user.getId())) {
@@ -284,15 +502,38 @@ public class TransactionService {
         // Сохраняем изменения
         cardRepository.save(fromCard);
         cardRepository.save(toCard);
+        // Представления для write-through строятся по card_last_four, без расшифровки номеров
+        cardViewCache.updated(fromCard.getId(), () -> CardView.of(fromCard, encryptionService.maskStoredCardNumber(fromCard)));
+        cardViewCache.updated(toCard.getId(), () -> CardView.of(toCard, encryptionService.maskStoredCardNumber(toCard)));
 
-        // Расшифровываем и маскируем номера карт для логирования
-        String fromCardDecrypted = encryptionService.decrypt(fromCard.getCardNumber());
-        String toCardDecrypted = encryptionService.decrypt(toCard.getCardNumber());
-        String fromCardMasked = encryptionService.maskCardNumber(fromCardDecrypted);
-        String toCardMasked = encryptionService.maskCardNumber(toCardDecrypted);
-        
-        log.debug("Перевод выполнен: {} -> {}, сумма: {}", 
-                fromCardMasked, toCardMasked, amount);
+        if (log.isDebugEnabled()) {
+            log.debug("Перевод выполнен: {} -> {}, сумма: {}",
+                    encryptionService.maskStoredCardNumber(fromCard), encryptionService.maskStoredCardNumber(toCard), amount);
+        }
+
+        // Подписчики получат изменения только после фиксации транзакции
+        publishBalanceChanged(fromCard);
+        publishBalanceChanged(toCard);
+    }
+
+    /**
+     * Маскированный номер карты
+     */
+    private String maskCardNumber(Card card) {
+        return encryptionService.maskCardNumber(encryptionService.decrypt(card.getCardNumber()));
+    }
+
+    /**
+     * Публикация события об изменении баланса карты
+     */
+    private void publishBalanceChanged(Card card) {
+        eventPublisher.publishEvent(new BalanceChangedEvent(
+                card.getUser().getUsername(),
+                card.getId(),
+                card.getCardNumber(),
+                card.getBalance(),
+                card.getCardHolderName()
+        ));
     }
 
     /**
@@ -315,10 +556,14 @@ public class TransactionService {
      * Проверка доступа к карте
      */
     private void validateCardAccess(Card card, String username) {
-        if (!card.getUser().getUsername().equals(username)) {
+        validateCardAccess(card.getUser().getUsername(), username);
+    }
+
+    private void validateCardAccess(String ownerUsername, String username) {
+        if (!ownerUsername.equals(username)) {
             User user = userService.findByUsername(username);
             if (!userService.hasRole(user.getId(), RoleName.ROLE_ADMIN)) {
-                throw new AccessDeniedException("Недостаточно прав для доступа к карте");
+                throw new ForbiddenOperationException("Недостаточно прав для доступа к карте");
             }
         }
     }
@@ -334,8 +579,47 @@ public class TransactionService {
                            transaction.getToCard().getUser().getId().equals(user.getId());
 
         if (!hasAccess && !userService.hasRole(user.getId(), RoleName.ROLE_ADMIN)) {
-            throw new AccessDeniedException("Недостаточно прав для доступа к транзакции");
+            throw new ForbiddenOperationException("Недостаточно прав для доступа к транзакции");
+        }
+    }
+
+    /**
+     * Маскированные номера карт архивных строк: карты загружаются одним запросом
+     */
+    private Map<Long, String> maskArchivedCardNumbers(List<Object> rows) {
+        Set<Long> cardIds = new HashSet<>();
+        for (Object row : rows) {
+            if (row instanceof TransactionSegment.Row archived) {
+                cardIds.add(archived.fromCardId());
+                cardIds.add(archived.toCardId());
+            }
+        }
+        Map<Long, String> masked = new HashMap<>();
+        if (!cardIds.isEmpty()) {
+            for (Card card : cardRepository.findAllById(cardIds)) {
+                masked.put(card.getId(), encryptionService.maskCardNumber(encryptionService.decrypt(card.getCardNumber())));
+            }
         }
+        return masked;
+    }
+
+    /**
+     * Преобразование архивной строки в TransactionResponse
+     */
+    private TransactionResponse mapArchivedToResponse(TransactionSegment.Row row, Map<Long, String> cardNumbers) {
+        return new TransactionResponse(
+                row.id(),
+                row.fromCardId(),
+                cardNumbers.getOrDefault(row.fromCardId(), ARCHIVED_CARD_MASK),
+                row.toCardId(),
+                cardNumbers.getOrDefault(row.toCardId(), ARCHIVED_CARD_MASK),
+                row.amount(),
+                row.description(),
+                TransactionStatus.valueOf(row.status()),
+                row.transactionDate(),
+                row.completedAt(),
+                row.errorMessage()
+        );
     }
 
     /**
@@ -5,7 +5,6 @@ import com.example.bankcards.entity.enums.RoleName;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.UserAlreadyExistsException;
 import com.example.bankcards.exception.UserNotFoundException;
-import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -32,8 +31,9 @@ public class UserService {
     private static final String ROLE_NOT_FOUND = "Роль не найдена: ";
 
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final RoleCache roleCache;
     private final PasswordEncoder passwordEncoder;
+    private final RefreshTokenService refreshTokenService;
 
     /**
      * Создание нового пользователя
@@ -56,7 +56,7 @@ public class UserService {
             throw new UserAlreadyExistsException(USER_WITH_EMAIL + email + "' уже существует");
         }
 
-        Role role = roleRepository.findByName(roleName)
+        Role role = roleCache.findByName(roleName)
                 .orElseThrow(() -> new RuntimeException(ROLE_NOT_FOUND + roleName));
 
         User.UserBuilder userBuilder = User.builder()
@@ -122,6 +122,9 @@ public class UserService {
                 .orElseThrow(() -> new UserNotFoundException(USER_WITH_ID + userId + NOT_FOUND));
         user.setEnabled(enabled);
         User savedUser = userRepository.save(user);
+        if (!enabled) {
+            refreshTokenService.revokeAll(user);
+        }
         log.info("Пользователь {} {}", user.getUsername(), enabled ? "активирован" : "деактивирован");
         return savedUser;
     }
@@ -132,7 +135,7 @@ public class UserService {
     public User addRoleToUser(Long userId, RoleName roleName) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException(USER_WITH_ID + userId + NOT_FOUND));
-        Role role = roleRepository.findByName(roleName)
+        Role role = roleCache.findByName(roleName)
                 .orElseThrow(() -> new RuntimeException(ROLE_NOT_FOUND + roleName));
 
         user.getRoles().add(role);
@@ -147,24 +150,25 @@ public class UserService {
     public User removeRoleFromUser(Long userId, RoleName roleName) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException(USER_WITH_ID + userId + NOT_FOUND));
-        Role role = roleRepository.findByName(roleName)
+        Role role = roleCache.findByName(roleName)
                 .orElseThrow(() -> new RuntimeException(ROLE_NOT_FOUND + roleName));
 
         user.getRoles().remove(role);
         User savedUser = userRepository.save(user);
+        // Роли зашиты в access-токен: действующие токены отзываются, новые выдаются при обновлении
+        refreshTokenService.revokeAccessTokens(user);
         log.info("Роль {} удалена у пользователя {}", roleName, user.getUsername());
         return savedUser;
     }
 
     /**
-     * Проверка наличия роли у пользователя
+     * Проверка наличия роли у пользователя по первичному ключу user_roles, без загрузки ролей
      */
     @Transactional(readOnly = true)
     public boolean hasRole(Long userId, RoleName roleName) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException(USER_WITH_ID + userId + NOT_FOUND));
-        return user.getRoles().stream()
-                .anyMatch(role -> role.getName() == roleName);
+        return roleCache.findByName(roleName)
+                .map(role -> userRepository.existsUserRole(userId, role.getId()))
+                .orElse(false);
     }
 
     /**
@@ -175,6 +179,7 @@ public class UserService {
                 .orElseThrow(() -> new UserNotFoundException(USER_WITH_ID + userId + NOT_FOUND));
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        refreshTokenService.revokeAll(user);
         log.info("Пароль изменен для пользователя: {}", user.getUsername());
     }
 
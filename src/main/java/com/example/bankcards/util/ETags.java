@@ -0,0 +1,33 @@
+package com.example.bankcards.util;
+
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Построение ETag по версиям (оптимистической блокировки) карт без загрузки сущностей.
+ * Область (card, balance, cards, balances) различает представления одних и тех же данных
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * ETag одной карты: ID и версия
+     */
+    public static String card(String scope, Long cardId, Long version) {
+        return scope + "-" + cardId + "-" + version;
+    }
+
+    /**
+     * Слабый ETag страницы карт пользователя. Версия набора — количество карт, сумма ID и сумма версий:
+     * добавление, удаление и изменение любой карты меняют хотя бы одно значение.
+     * Слабый, потому что страницы сжимаются, а Tomcat не сжимает ответы со строгим ETag
+     */
+    public static String cardSet(String scope, long count, long idSum, long versionSum, Pageable pageable) {
+        String sort = pageable.getSort().isSorted()
+                ? pageable.getSort().toString().replaceAll("[^A-Za-z0-9_.,:]", "")
+                : "unsorted";
+        return "W/\"" + scope + "-" + count + "-" + idSum + "-" + versionSum
+                + "-" + pageable.getPageNumber() + "-" + pageable.getPageSize() + "-" + sort + "\"";
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.bankcards.util;
+
+import lombok.Getter;
+
+/**
+ * Форматы выгрузки выписки по карте
+ */
+@Getter
+public enum StatementFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    StatementFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.dto.response.TransactionResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Построчная запись выписки в выходной поток.
+ * Не буферизует строки целиком: каждая запись сразу уходит в буфер writer'а фиксированного размера.
+ */
+public abstract class StatementWriter {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    protected final Writer writer;
+
+    protected StatementWriter(OutputStream outputStream) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Создание writer'а для указанного формата
+     */
+    public static StatementWriter create(StatementFormat format, OutputStream outputStream, ObjectMapper objectMapper) {
+        return switch (format) {
+            case CSV -> new CsvStatementWriter(outputStream);
+            case NDJSON -> new NdjsonStatementWriter(outputStream, objectMapper);
+        };
+    }
+
+    /**
+     * Запись заголовка (если формат его предусматривает)
+     */
+    public abstract void writeHeader() throws IOException;
+
+    /**
+     * Запись одной транзакции
+     */
+    public abstract void writeRow(TransactionResponse transaction) throws IOException;
+
+    /**
+     * Сброс буфера без закрытия исходного потока
+     */
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * CSV (RFC 4180)
+     */
+    private static final class CsvStatementWriter extends StatementWriter {
+
+        private static final String HEADER = "id,transactionDate,completedAt,fromCardId,fromCardNumber," +
+                "toCardId,toCardNumber,amount,status,description,errorMessage";
+
+        private CsvStatementWriter(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void writeHeader() throws IOException {
+            writer.write(HEADER);
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void writeRow(TransactionResponse transaction) throws IOException {
+            writer.write(String.valueOf(transaction.id()));
+            writer.write(',');
+            writeValue(transaction.transactionDate());
+            writer.write(',');
+            writeValue(transaction.completedAt());
+            writer.write(',');
+            writeValue(transaction.fromCardId());
+            writer.write(',');
+            writeText(transaction.fromCardNumber());
+            writer.write(',');
+            writeValue(transaction.toCardId());
+            writer.write(',');
+            writeText(transaction.toCardNumber());
+            writer.write(',');
+            writeValue(transaction.amount() != null ? transaction.amount().toPlainString() : null);
+            writer.write(',');
+            writeValue(transaction.status());
+            writer.write(',');
+            writeText(transaction.description());
+            writer.write(',');
+            writeText(transaction.errorMessage());
+            writer.write("\r\n");
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value != null) {
+                writer.write(value.toString());
+            }
+        }
+
+        private void writeText(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            boolean needsQuoting = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!needsQuoting) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    /**
+     * Newline-delimited JSON: один объект TransactionResponse на строку
+     */
+    private static final class NdjsonStatementWriter extends StatementWriter {
+
+        private final ObjectMapper objectMapper;
+
+        private NdjsonStatementWriter(OutputStream outputStream, ObjectMapper objectMapper) {
+            super(outputStream);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public void writeHeader() {
+            // NDJSON не содержит заголовка
+        }
+
+        @Override
+        public void writeRow(TransactionResponse transaction) throws IOException {
+            writer.write(objectMapper.writeValueAsString(transaction));
+            writer.write('\n');
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Позиция keyset-пагинации транзакций: дата и ID последней выданной строки.
+ * Передается клиенту непрозрачной строкой Base64url
+ */
+public record TransactionCursor(LocalDateTime transactionDate, long id) {
+
+    private static final char SEPARATOR = '|';
+    private static final InvalidCursorException INVALID_CURSOR = new InvalidCursorException("Некорректный курсор страницы");
+
+    public static TransactionCursor of(Transaction transaction) {
+        return new TransactionCursor(transaction.getTransactionDate(), transaction.getId());
+    }
+
+    public String encode() {
+        String value = transactionDate.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TransactionCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(SEPARATOR);
+            return new TransactionCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw INVALID_CURSOR;
+        }
+    }
+}
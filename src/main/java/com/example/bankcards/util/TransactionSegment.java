@@ -0,0 +1,369 @@
+package com.example.bankcards.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Неизменяемый сегмент архива переводов: строки хранятся по колонкам, каждая колонка сжата
+ * отдельно (deflate), целые колонки — дельтами в varint.
+ * <p>
+ * Формат: блоки колонок, затем футер (число строк, диапазон дат, смещения колонок и индекс
+ * «ID карты → номера строк»), длина футера и сигнатура. Поиск по карте читает только футер,
+ * колонки распаковываются, если карта в сегменте есть.
+ */
+public final class TransactionSegment implements Closeable {
+
+    private static final int MAGIC = 0x42435347; // "BCSG"
+    private static final int VERSION = 1;
+    private static final int TRAILER_SIZE = Integer.BYTES * 2;
+
+    private static final int COLUMN_ID = 0;
+    private static final int COLUMN_FROM_CARD = 1;
+    private static final int COLUMN_TO_CARD = 2;
+    private static final int COLUMN_AMOUNT = 3;
+    private static final int COLUMN_DESCRIPTION = 4;
+    private static final int COLUMN_STATUS = 5;
+    private static final int COLUMN_DATE = 6;
+    private static final int COLUMN_COMPLETED_AT = 7;
+    private static final int COLUMN_ERROR = 8;
+    private static final int COLUMN_COUNT = 9;
+
+    private final FileChannel channel;
+    private final int rowCount;
+    private final LocalDateTime minDate;
+    private final LocalDateTime maxDate;
+    private final long[] columnOffsets;
+    private final int[] columnLengths;
+    private final Map<Long, int[]> cardIndex;
+
+    /**
+     * Строка архива
+     */
+    public record Row(long id,
+                      long fromCardId,
+                      long toCardId,
+                      BigDecimal amount,
+                      String description,
+                      String status,
+                      LocalDateTime transactionDate,
+                      LocalDateTime completedAt,
+                      String errorMessage) {}
+
+    private TransactionSegment(FileChannel channel, int rowCount, LocalDateTime minDate, LocalDateTime maxDate,
+                               long[] columnOffsets, int[] columnLengths, Map<Long, int[]> cardIndex) {
+        this.channel = channel;
+        this.rowCount = rowCount;
+        this.minDate = minDate;
+        this.maxDate = maxDate;
+        this.columnOffsets = columnOffsets;
+        this.columnLengths = columnLengths;
+        this.cardIndex = cardIndex;
+    }
+
+    /**
+     * Запись сегмента. Строки записываются в переданном порядке
+     */
+    public static void write(List<Row> rows, OutputStream outputStream) throws IOException {
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Сегмент архива не может быть пустым");
+        }
+        DataOutputStream out = new DataOutputStream(outputStream);
+
+        long[] offsets = new long[COLUMN_COUNT];
+        int[] lengths = new int[COLUMN_COUNT];
+        long position = 0;
+        for (int column = 0; column < COLUMN_COUNT; column++) {
+            byte[] block = encodeColumn(column, rows);
+            out.write(block);
+            offsets[column] = position;
+            lengths[column] = block.length;
+            position += block.length;
+        }
+
+        Map<Long, List<Integer>> postings = new TreeMap<>();
+        LocalDateTime minDate = rows.get(0).transactionDate();
+        LocalDateTime maxDate = minDate;
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            postings.computeIfAbsent(row.fromCardId(), id -> new ArrayList<>()).add(i);
+            if (row.toCardId() != row.fromCardId()) {
+                postings.computeIfAbsent(row.toCardId(), id -> new ArrayList<>()).add(i);
+            }
+            minDate = row.transactionDate().isBefore(minDate) ? row.transactionDate() : minDate;
+            maxDate = row.transactionDate().isAfter(maxDate) ? row.transactionDate() : maxDate;
+        }
+
+        ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+        DataOutputStream footer = new DataOutputStream(footerBytes);
+        footer.writeInt(VERSION);
+        footer.writeInt(rows.size());
+        footer.writeLong(toMicros(minDate));
+        footer.writeLong(toMicros(maxDate));
+        for (int column = 0; column < COLUMN_COUNT; column++) {
+            footer.writeLong(offsets[column]);
+            footer.writeInt(lengths[column]);
+        }
+        footer.writeInt(postings.size());
+        for (Map.Entry<Long, List<Integer>> entry : postings.entrySet()) {
+            footer.writeLong(entry.getKey());
+            footer.writeInt(entry.getValue().size());
+            int previous = 0;
+            for (int rowIndex : entry.getValue()) {
+                writeVarLong(footer, rowIndex - previous);
+                previous = rowIndex;
+            }
+        }
+        footer.flush();
+
+        footerBytes.writeTo(out);
+        out.writeInt(footerBytes.size());
+        out.writeInt(MAGIC);
+        out.flush();
+    }
+
+    /**
+     * Открытие сегмента: читается только футер
+     */
+    public static TransactionSegment open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < TRAILER_SIZE) {
+                throw new IOException("Поврежденный сегмент архива: " + file);
+            }
+            ByteBuffer trailer = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            int footerLength = trailer.getInt();
+            if (trailer.getInt() != MAGIC || footerLength <= 0 || footerLength > size - TRAILER_SIZE) {
+                throw new IOException("Поврежденный сегмент архива: " + file);
+            }
+
+            DataInputStream footer = new DataInputStream(new ByteArrayInputStream(
+                    readFully(channel, size - TRAILER_SIZE - footerLength, footerLength).array()));
+            if (footer.readInt() != VERSION) {
+                throw new IOException("Неподдерживаемая версия сегмента архива: " + file);
+            }
+            int rowCount = footer.readInt();
+            LocalDateTime minDate = fromMicros(footer.readLong());
+            LocalDateTime maxDate = fromMicros(footer.readLong());
+            long[] offsets = new long[COLUMN_COUNT];
+            int[] lengths = new int[COLUMN_COUNT];
+            for (int column = 0; column < COLUMN_COUNT; column++) {
+                offsets[column] = footer.readLong();
+                lengths[column] = footer.readInt();
+            }
+            int cards = footer.readInt();
+            Map<Long, int[]> cardIndex = new TreeMap<>();
+            for (int i = 0; i < cards; i++) {
+                long cardId = footer.readLong();
+                int[] rows = new int[footer.readInt()];
+                int previous = 0;
+                for (int j = 0; j < rows.length; j++) {
+                    previous += (int) readVarLong(footer);
+                    rows[j] = previous;
+                }
+                cardIndex.put(cardId, rows);
+            }
+            return new TransactionSegment(channel, rowCount, minDate, maxDate, offsets, lengths, cardIndex);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public LocalDateTime getMinDate() {
+        return minDate;
+    }
+
+    public LocalDateTime getMaxDate() {
+        return maxDate;
+    }
+
+    /**
+     * Количество строк карты по индексу футера, без чтения колонок
+     */
+    public int countByCard(long cardId) {
+        int[] rowIndexes = cardIndex.get(cardId);
+        return rowIndexes != null ? rowIndexes.length : 0;
+    }
+
+    /**
+     * Строки, в которых карта участвует как отправитель или получатель
+     */
+    public List<Row> findByCard(long cardId) throws IOException {
+        int[] rowIndexes = cardIndex.get(cardId);
+        if (rowIndexes == null) {
+            return List.of();
+        }
+
+        long[] ids = readLongColumn(COLUMN_ID, true);
+        long[] fromCards = readLongColumn(COLUMN_FROM_CARD, false);
+        long[] toCards = readLongColumn(COLUMN_TO_CARD, false);
+        String[] amounts = readStringColumn(COLUMN_AMOUNT);
+        String[] descriptions = readStringColumn(COLUMN_DESCRIPTION);
+        String[] statuses = readStringColumn(COLUMN_STATUS);
+        long[] dates = readLongColumn(COLUMN_DATE, true);
+        Long[] completedAt = readNullableLongColumn(COLUMN_COMPLETED_AT);
+        String[] errors = readStringColumn(COLUMN_ERROR);
+
+        List<Row> rows = new ArrayList<>(rowIndexes.length);
+        for (int i : rowIndexes) {
+            rows.add(new Row(ids[i], fromCards[i], toCards[i], new BigDecimal(amounts[i]), descriptions[i],
+                    statuses[i], fromMicros(dates[i]),
+                    completedAt[i] != null ? fromMicros(completedAt[i]) : null,
+                    errors[i]));
+        }
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static byte[] encodeColumn(int column, List<Row> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            long previous = 0;
+            for (Row row : rows) {
+                switch (column) {
+                    case COLUMN_ID -> previous = writeDelta(out, row.id(), previous);
+                    case COLUMN_FROM_CARD -> writeVarLong(out, row.fromCardId());
+                    case COLUMN_TO_CARD -> writeVarLong(out, row.toCardId());
+                    case COLUMN_AMOUNT -> writeString(out, row.amount().toPlainString());
+                    case COLUMN_DESCRIPTION -> writeString(out, row.description());
+                    case COLUMN_STATUS -> writeString(out, row.status());
+                    case COLUMN_DATE -> previous = writeDelta(out, toMicros(row.transactionDate()), previous);
+                    case COLUMN_COMPLETED_AT -> {
+                        out.writeBoolean(row.completedAt() != null);
+                        if (row.completedAt() != null) {
+                            writeVarLong(out, toMicros(row.completedAt()));
+                        }
+                    }
+                    case COLUMN_ERROR -> writeString(out, row.errorMessage());
+                    default -> throw new IllegalStateException("Неизвестная колонка сегмента: " + column);
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private DataInputStream openColumn(int column) throws IOException {
+        byte[] block = readFully(channel, columnOffsets[column], columnLengths[column]).array();
+        return new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(block)));
+    }
+
+    private long[] readLongColumn(int column, boolean delta) throws IOException {
+        long[] values = new long[rowCount];
+        try (DataInputStream in = openColumn(column)) {
+            long previous = 0;
+            for (int i = 0; i < rowCount; i++) {
+                long value = readVarLong(in);
+                values[i] = delta ? previous + value : value;
+                previous = values[i];
+            }
+        }
+        return values;
+    }
+
+    private Long[] readNullableLongColumn(int column) throws IOException {
+        Long[] values = new Long[rowCount];
+        try (DataInputStream in = openColumn(column)) {
+            for (int i = 0; i < rowCount; i++) {
+                values[i] = in.readBoolean() ? readVarLong(in) : null;
+            }
+        }
+        return values;
+    }
+
+    private String[] readStringColumn(int column) throws IOException {
+        String[] values = new String[rowCount];
+        try (DataInputStream in = openColumn(column)) {
+            for (int i = 0; i < rowCount; i++) {
+                values[i] = in.readBoolean() ? in.readUTF() : null;
+            }
+        }
+        return values;
+    }
+
+    private static long writeDelta(DataOutputStream out, long value, long previous) throws IOException {
+        writeVarLong(out, value - previous);
+        return value;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Знаковое число в zigzag-varint
+     */
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Неожиданный конец колонки сегмента");
+            }
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Некорректное число в колонке сегмента");
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Неожиданный конец сегмента архива");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static long toMicros(LocalDateTime value) {
+        return ChronoUnit.MICROS.between(LocalDateTime.of(1970, 1, 1, 0, 0), value);
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000), (int) Math.floorMod(micros, 1_000_000) * 1000,
+                ZoneOffset.UTC);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.bankcards.integration;
 
 import com.example.bankcards.dto.request.LoginRequest;
+import com.example.bankcards.dto.request.RefreshTokenRequest;
 import com.example.bankcards.dto.request.RegisterRequest;
 import com.example.bankcards.dto.response.AuthResponse;
 import com.example.bankcards.repository.UserRepository;
@@ -249,4 +250,48 @@ class AuthIntegrationTest extends BaseIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.token").exists());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Ротация refresh-токена: повторное использование отзывает весь сеанс")
+    void refreshToken_ShouldRotateAndDetectReuse() throws Exception {
+        RegisterRequest registerRequest = new RegisterRequest(
+                "refreshuser",
+                "refresh@example.com",
+                "password123",
+                "Refresh",
+                "Test"
+        );
+
+        MvcResult registerResult = mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(registerRequest)))
+                .andExpect(status().isOk())
+                .andReturn();
+        AuthResponse registerResponse = objectMapper.readValue(
+                registerResult.getResponse().getContentAsString(),
+                AuthResponse.class
+        );
+
+        MvcResult refreshResult = mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest(registerResponse.refreshToken()))))
+                .andExpect(status().isOk())
+                .andReturn();
+        AuthResponse refreshResponse = objectMapper.readValue(
+                refreshResult.getResponse().getContentAsString(),
+                AuthResponse.class
+        );
+        assertNotNull(refreshResponse.token());
+
+        // Повторное предъявление старого токена отзывает и выданный взамен
+        mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest(registerResponse.refreshToken()))))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest(refreshResponse.refreshToken()))))
+                .andExpect(status().isUnauthorized());
+    }
+}
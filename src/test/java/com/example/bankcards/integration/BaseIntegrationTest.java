@@ -36,6 +36,10 @@ public abstract class BaseIntegrationTest {
         registry.add("spring.jpa.properties.hibernate.dialect",
                 () -> "org.hibernate.dialect.PostgreSQLDialect");
 
+        registry.add("app.jwt.secret", () -> "dGVzdC1vbmx5LWp3dC1zZWNyZXQtZm9yLWludGVncmF0aW9uLXRlc3Rz");
+        // Лимиты частоты мешают тестам, выполняющим много запросов подряд
+        registry.add("app.rate-limit.enabled", () -> "false");
+
         // Оптимизация для Testcontainers
         registry.add("spring.datasource.hikari.maximum-pool-size", () -> "5");
         registry.add("spring.datasource.hikari.minimum-idle", () -> "2");
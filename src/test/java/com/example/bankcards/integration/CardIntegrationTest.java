@@ -22,6 +22,8 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -144,6 +146,36 @@ class CardIntegrationTest extends BaseIntegrationTest {
                 .andExpect(jsonPath("$.content[0].id").value(testCardId));
     }
 
+    @Test
+    @DisplayName("Условный запрос карты - 304 до изменения и новый ETag после")
+    void getCard_WithMatchingETag_ShouldReturnNotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/api/cards/" + testCardId)
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/cards/" + testCardId)
+                        .header("Authorization", "Bearer " + userToken)
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/api/cards")
+                        .header("Authorization", "Bearer " + userToken)
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/cards/" + testCardId + "/block")
+                .header("Authorization", "Bearer " + userToken));
+
+        mockMvc.perform(get("/api/cards/" + testCardId)
+                        .header("Authorization", "Bearer " + userToken)
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("BLOCKED"));
+    }
+
     @Test
     @DisplayName("Обновление карты - успешный сценарий")
     void updateCard_ShouldReturnUpdatedCard() throws Exception {
@@ -215,6 +247,29 @@ class CardIntegrationTest extends BaseIntegrationTest {
                 .andExpect(jsonPath("$.content.length()").value(1));
     }
 
+    @Test
+    @DisplayName("Поиск карт по имени держателя и последним цифрам (администратор)")
+    void searchCards_Admin_ShouldMatchNormalizedHolderNameAndLastFour() throws Exception {
+        mockMvc.perform(get("/api/cards/admin/search")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("holder", "  TEST   us")
+                        .param("lastFour", "5678"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(testCardId));
+
+        mockMvc.perform(get("/api/cards/admin/search")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("holder", "t_st"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(0));
+
+        mockMvc.perform(get("/api/cards/admin/search")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("lastFour", "56a8"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("Доступ к чужой карте - ошибка")
     void accessOtherUserCard_ShouldReturnForbidden() throws Exception {
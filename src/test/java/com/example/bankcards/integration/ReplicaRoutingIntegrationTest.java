@@ -0,0 +1,97 @@
+package com.example.bankcards.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Интеграционные тесты маршрутизации чтений на реплику с двумя контейнерами PostgreSQL
+ */
+@SpringBootTest
+@Testcontainers
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class ReplicaRoutingIntegrationTest {
+
+    @SuppressWarnings("resource")
+    @Container
+    private static final PostgreSQLContainer<?> primary =
+            new PostgreSQLContainer<>("postgres:16-alpine")
+                    .withDatabaseName("primarydb")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    @SuppressWarnings("resource")
+    @Container
+    private static final PostgreSQLContainer<?> replica =
+            new PostgreSQLContainer<>("postgres:16-alpine")
+                    .withDatabaseName("replicadb")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primary::getJdbcUrl);
+        registry.add("spring.datasource.username", primary::getUsername);
+        registry.add("spring.datasource.password", primary::getPassword);
+        registry.add("app.jwt.secret", () -> "dGVzdC1vbmx5LWp3dC1zZWNyZXQtZm9yLWludGVncmF0aW9uLXRlc3Rz");
+        registry.add("app.datasource.replica.url", replica::getJdbcUrl);
+        registry.add("app.datasource.replica.pin-duration", () -> "PT1M");
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> "3");
+        registry.add("app.datasource.replica.hikari.maximum-pool-size", () -> "3");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUseReplica() {
+        assertEquals("replicadb", currentDatabase(true));
+    }
+
+    @Test
+    void readWriteTransaction_ShouldUsePrimary() {
+        assertEquals("primarydb", currentDatabase(false));
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUsePrimary_AfterUserWrite() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("pinned-user", null, List.of()));
+        assertEquals("replicadb", currentDatabase(true));
+
+        currentDatabase(false);
+
+        assertEquals("primarydb", currentDatabase(true));
+    }
+
+    private String currentDatabase(boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status ->
+                jdbcTemplate.queryForObject("SELECT current_database()", String.class));
+    }
+}
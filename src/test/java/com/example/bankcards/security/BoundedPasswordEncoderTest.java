@@ -0,0 +1,99 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.HashingCapacityExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        if (encoder != null) {
+            encoder.shutdown();
+        }
+    }
+
+    @Test
+    void matches_ShouldAcceptLegacyHashAndRequestUpgrade() {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(5);
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        encoder = new BoundedPasswordEncoder(delegating, 1, 1, Duration.ofSeconds(5));
+
+        String legacyHash = new BCryptPasswordEncoder(4).encode("password");
+        String newHash = encoder.encode("password");
+
+        assertTrue(encoder.matches("password", legacyHash));
+        assertTrue(encoder.upgradeEncoding(legacyHash));
+        assertTrue(newHash.startsWith("{bcrypt}$2a$05$"));
+        assertTrue(encoder.matches("password", newHash));
+        assertFalse(encoder.upgradeEncoding(newHash));
+    }
+
+    @Test
+    void matches_ShouldRejectWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(started, release), 1, 1, Duration.ofSeconds(5));
+
+        Thread first = new Thread(() -> encoder.matches("a", "a"));
+        Thread second = new Thread(() -> encoder.matches("b", "b"));
+        first.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        second.start();
+        while (encoder.getExecutor().getQueue().isEmpty()) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(HashingCapacityExceededException.class, () -> encoder.matches("c", "c"));
+
+        release.countDown();
+        first.join();
+        second.join();
+    }
+
+    @Test
+    void matches_ShouldFailWhenHashingTimesOut() {
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(new CountDownLatch(1), new CountDownLatch(1)),
+                1, 1, Duration.ofMillis(50));
+
+        HashingCapacityExceededException first =
+                assertThrows(HashingCapacityExceededException.class, () -> encoder.matches("a", "a"));
+        HashingCapacityExceededException second =
+                assertThrows(HashingCapacityExceededException.class, () -> encoder.matches("b", "b"));
+
+        assertSame(first, second);
+        assertEquals(0, first.getStackTrace().length);
+    }
+
+    private record BlockingEncoder(CountDownLatch started, CountDownLatch release) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    }
+}
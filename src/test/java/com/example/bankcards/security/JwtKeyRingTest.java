@@ -0,0 +1,98 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.JwtSigningProperties;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.security.KeyPair;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtKeyRingTest {
+
+    private static final String SECRET = "MySecretKeyForJWTTokenGeneration12345678901234567890";
+
+    @TempDir
+    Path keyDir;
+
+    @Test
+    void hs256_ShouldSignAndVerifyWithSharedSecret() {
+        JwtKeyRing ring = new JwtKeyRing(new JwtSigningProperties("HS256", null, List.of()), SECRET);
+
+        String token = ring.sign(Jwts.builder().subject("testuser"));
+
+        assertEquals("testuser", ring.parser().parseSignedClaims(token).getPayload().getSubject());
+        assertEquals("{\"keys\":[]}", ring.jwksJson());
+    }
+
+    @Test
+    void eddsa_ShouldVerifyTokensOfPreviousKeyAfterRotation() throws Exception {
+        JwtSigningProperties.Key oldKey = writeKey("old", JwtKeyRing.EDDSA);
+        JwtSigningProperties.Key newKey = writeKey("new", JwtKeyRing.EDDSA);
+
+        JwtKeyRing before = new JwtKeyRing(new JwtSigningProperties("EdDSA", "old", List.of(oldKey)), SECRET);
+        String oldToken = before.sign(Jwts.builder().subject("testuser"));
+
+        JwtKeyRing after = new JwtKeyRing(new JwtSigningProperties("EdDSA", "new", List.of(newKey, oldKey)), SECRET);
+        String newToken = after.sign(Jwts.builder().subject("testuser"));
+
+        assertEquals("old", after.parser().parseSignedClaims(oldToken).getHeader().getKeyId());
+        assertEquals("new", after.parser().parseSignedClaims(newToken).getHeader().getKeyId());
+        assertThrows(JwtException.class, () -> before.parser().parseSignedClaims(newToken));
+        assertTrue(after.jwksJson().contains("\"kid\":\"old\""));
+        assertTrue(after.jwksJson().contains("\"kid\":\"new\""));
+    }
+
+    @Test
+    void es256_VerifyOnlyNodeShouldVerifyButNotSign() throws Exception {
+        JwtSigningProperties.Key signingKey = writeKey("k1", JwtKeyRing.ES256);
+        JwtSigningProperties.Key publicOnly = new JwtSigningProperties.Key("k1", null, signingKey.publicKey());
+
+        JwtKeyRing issuer = new JwtKeyRing(new JwtSigningProperties("ES256", "k1", List.of(signingKey)), SECRET);
+        JwtKeyRing verifier = new JwtKeyRing(new JwtSigningProperties("ES256", "k1", List.of(publicOnly)), SECRET);
+        String token = issuer.sign(Jwts.builder().subject("testuser"));
+
+        assertEquals("testuser", verifier.parser().parseSignedClaims(token).getPayload().getSubject());
+        assertThrows(IllegalStateException.class, () -> verifier.sign(Jwts.builder().subject("testuser")));
+    }
+
+    @Test
+    void asymmetric_ShouldRejectHmacSignedToken() {
+        JwtKeyRing hmac = new JwtKeyRing(new JwtSigningProperties("HS256", null, List.of()), SECRET);
+        JwtKeyRing eddsa = new JwtKeyRing(new JwtSigningProperties("EdDSA", null, List.of()), SECRET);
+
+        String token = hmac.sign(Jwts.builder().subject("testuser"));
+
+        assertThrows(JwtException.class, () -> eddsa.parser().parseSignedClaims(token));
+    }
+
+    @Test
+    void constructor_ShouldRequireSecret_OnlyForHs256() {
+        assertThrows(IllegalStateException.class,
+                () -> new JwtKeyRing(new JwtSigningProperties("HS256", null, List.of()), ""));
+        assertDoesNotThrow(() -> new JwtKeyRing(new JwtSigningProperties("EdDSA", null, List.of()), ""));
+    }
+
+    private JwtSigningProperties.Key writeKey(String id, String algorithm) throws Exception {
+        KeyPair keyPair = JwtKeyRing.generateKeyPair(algorithm);
+        Path publicKey = keyDir.resolve(id + ".pub.pem");
+        Path privateKey = keyDir.resolve(id + ".pem");
+        Files.writeString(publicKey, pem("PUBLIC KEY", keyPair.getPublic()));
+        Files.writeString(privateKey, pem("PRIVATE KEY", keyPair.getPrivate()));
+        return new JwtSigningProperties.Key(id, new FileSystemResource(privateKey), new FileSystemResource(publicKey));
+    }
+
+    private static String pem(String type, Key key) {
+        return "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(key.getEncoded())
+                + "\n-----END " + type + "-----\n";
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        RateLimitProperties properties = new RateLimitProperties(true, Duration.ofMinutes(10), List.of(
+                new RateLimitProperties.Route("login", "POST", "/api/auth/login", 2, 0.5, true),
+                new RateLimitProperties.Route("api", null, "/api/**", 100, 50, false)));
+        rateLimiter = new RateLimiter(properties, meterRegistry);
+    }
+
+    @Test
+    void tokenBucket_ShouldRejectWhenEmptyAndRefillOverTime() {
+        long start = 0;
+        TokenBucket bucket = new TokenBucket(2, 1, start);
+
+        assertEquals(0, bucket.tryConsume(start));
+        assertEquals(0, bucket.tryConsume(start));
+        long retryAfter = bucket.tryConsume(start);
+
+        assertEquals(TimeUnit.SECONDS.toNanos(1), retryAfter);
+        assertEquals(0, bucket.tryConsume(start + retryAfter));
+        assertFalse(bucket.isIdle(start + retryAfter, 0));
+        assertTrue(bucket.isIdle(start + TimeUnit.SECONDS.toNanos(10), 0));
+    }
+
+    @Test
+    void findRoute_ShouldReturnFirstMatchingRoute() {
+        assertEquals("login", rateLimiter.findRoute("POST", "/api/auth/login").name());
+        assertEquals("api", rateLimiter.findRoute("GET", "/api/auth/login").name());
+        assertEquals("api", rateLimiter.findRoute("GET", "/api/cards/1").name());
+        assertNull(rateLimiter.findRoute("GET", "/actuator/health"));
+    }
+
+    @Test
+    void tryAcquire_ShouldLimitEachClientSeparatelyAndCountRejections() {
+        RateLimitProperties.Route login = rateLimiter.findRoute("POST", "/api/auth/login");
+
+        assertTrue(rateLimiter.tryAcquire(login, "ip:10.0.0.1").allowed());
+        assertTrue(rateLimiter.tryAcquire(login, "ip:10.0.0.1").allowed());
+        RateLimiter.Decision rejected = rateLimiter.tryAcquire(login, "ip:10.0.0.1");
+
+        assertFalse(rejected.allowed());
+        assertTrue(rejected.retryAfterNanos() > 0);
+        assertTrue(rateLimiter.tryAcquire(login, "ip:10.0.0.2").allowed());
+        assertEquals(1.0, meterRegistry.get("bankcards.ratelimit.rejected").tag("route", "login").counter().count());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.bankcards.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenRevocationRegistryTest {
+
+    private final TokenRevocationRegistry registry = new TokenRevocationRegistry(60_000, 1000, 0.001);
+
+    @Test
+    void isRevoked_ShouldDetectRevokedTokenAcrossRotation() {
+        Date issuedAt = new Date();
+        registry.revokeToken("revoked-jti", new Date(System.currentTimeMillis() + 60_000));
+
+        assertTrue(registry.isRevoked("revoked-jti", "testuser", issuedAt));
+        assertFalse(registry.isRevoked("other-jti", "testuser", issuedAt));
+
+        registry.rotate();
+        registry.rotate();
+
+        assertTrue(registry.isRevoked("revoked-jti", "testuser", issuedAt));
+    }
+
+    @Test
+    void rotate_ShouldForgetExpiredTokens() {
+        registry.revokeToken("expired-jti", new Date(System.currentTimeMillis() - 1));
+
+        registry.rotate();
+
+        assertFalse(registry.isRevoked("expired-jti", "testuser", new Date()));
+    }
+
+    @Test
+    void isRevoked_ShouldRejectTokensIssuedBeforeUserRevocation() {
+        Date issuedBefore = new Date(System.currentTimeMillis() - 5_000);
+        registry.revokeUser("testuser");
+
+        assertTrue(registry.isRevoked("jti", "testuser", issuedBefore));
+        assertFalse(registry.isRevoked("jti", "testuser", new Date(System.currentTimeMillis() + 5_000)));
+        assertFalse(registry.isRevoked("jti", "otheruser", issuedBefore));
+    }
+
+    @Test
+    void isRevoked_ShouldAcceptTokenIssuedMillisecondsAfterUserRevocation() {
+        registry.revokeUser("testuser");
+        Date issuedAfter = new Date(System.currentTimeMillis() + 1);
+
+        assertFalse(registry.isRevoked("jti", "testuser", issuedAfter));
+    }
+
+    @Test
+    void revokeUser_ShouldUseOriginTimeAndKeepLatestRevocation() {
+        long revokedAt = System.currentTimeMillis() - 10_000;
+        registry.revokeUser("testuser", revokedAt);
+        registry.revokeUser("testuser", revokedAt - 5_000);
+
+        assertTrue(registry.isRevoked("jti", "testuser", new Date(revokedAt)));
+        assertFalse(registry.isRevoked("jti", "testuser", new Date(revokedAt + 1)));
+    }
+}
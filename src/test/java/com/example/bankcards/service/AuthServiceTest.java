@@ -3,6 +3,9 @@ package com.example.bankcards.service;
 import com.example.bankcards.dto.response.AuthResponse;
 import com.example.bankcards.entity.enums.RoleName;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.security.LoginFailureCache;
+import com.example.bankcards.security.TokenRevocationRegistry;
+import io.jsonwebtoken.Claims;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -11,10 +14,14 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.time.Duration;
+import java.util.Date;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -34,6 +41,15 @@ class AuthServiceTest {
     @Mock
     private AuthenticationManager authenticationManager;
 
+    @Mock
+    private LoginFailureCache loginFailureCache;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Mock
+    private TokenRevocationRegistry revocationRegistry;
+
     @Mock
     private UserDetails userDetails;
 
@@ -67,6 +83,9 @@ class AuthServiceTest {
 
         when(userService.createUser(username, email, password, firstName, lastName, RoleName.ROLE_USER)).thenReturn(testUser);
         when(userDetailsService.loadUserByUsername(testUser.getUsername())).thenReturn(userDetails);
+        when(userDetails.getUsername()).thenReturn(testUser.getUsername());
+        when(refreshTokenService.issue(testUser.getUsername())).thenReturn("refresh-token");
+        when(refreshTokenService.getRefreshTokenTtl()).thenReturn(Duration.ofDays(14));
         when(jwtService.generateToken(userDetails)).thenReturn(expectedToken);
         when(jwtService.getExpirationTime()).thenReturn(expectedExpiration);
 
@@ -75,6 +94,7 @@ class AuthServiceTest {
         assertNotNull(result);
         assertEquals(expectedToken, result.token());
         assertEquals(expectedExpiration, result.expiresIn());
+        assertEquals("refresh-token", result.refreshToken());
 
         verify(userService).createUser(username, email, password, firstName, lastName, RoleName.ROLE_USER);
         verify(userDetailsService).loadUserByUsername(testUser.getUsername());
@@ -94,6 +114,9 @@ class AuthServiceTest {
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
                 .thenReturn(authentication);
         when(authentication.getPrincipal()).thenReturn(userDetails);
+        when(userDetails.getUsername()).thenReturn(login);
+        when(refreshTokenService.issue(login)).thenReturn("refresh-token");
+        when(refreshTokenService.getRefreshTokenTtl()).thenReturn(Duration.ofDays(14));
         when(jwtService.generateToken(userDetails)).thenReturn(expectedToken);
         when(jwtService.getExpirationTime()).thenReturn(expectedExpiration);
 
@@ -102,19 +125,75 @@ class AuthServiceTest {
         assertNotNull(result);
         assertEquals(expectedToken, result.token());
         assertEquals(expectedExpiration, result.expiresIn());
+        assertEquals("refresh-token", result.refreshToken());
+        assertEquals(Duration.ofDays(14).toMillis(), result.refreshExpiresIn());
 
         verify(authenticationManager).authenticate(any(UsernamePasswordAuthenticationToken.class));
         verify(jwtService).generateToken(userDetails);
     }
 
+    @Test
+    @DisplayName("Аутентификация - неверный пароль запоминается в кеше неудачных попыток")
+    void authenticate_ShouldRecordFailure_WhenCredentialsAreInvalid() {
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenThrow(new BadCredentialsException("Bad credentials"));
+
+        assertThrows(BadCredentialsException.class, () -> authService.authenticate("testuser", "wrong"));
+
+        verify(loginFailureCache).recordFailure("testuser", "wrong");
+        verify(jwtService, never()).generateToken(any());
+    }
+
+    @Test
+    @DisplayName("Аутентификация - повтор недавно отклоненных учетных данных без проверки пароля")
+    void authenticate_ShouldFailFast_WhenCredentialsRecentlyFailed() {
+        when(loginFailureCache.isRecentlyFailed("testuser", "wrong")).thenReturn(true);
+
+        assertThrows(BadCredentialsException.class, () -> authService.authenticate("testuser", "wrong"));
+
+        verifyNoInteractions(authenticationManager);
+    }
+
+    @Test
+    @DisplayName("Обновление токенов - ротация refresh-токена и новый access-токен")
+    void refresh_ShouldRotateRefreshTokenAndIssueAccessToken() {
+        when(refreshTokenService.rotate("old-refresh"))
+                .thenReturn(new RefreshTokenService.IssuedToken("new-refresh", "testuser"));
+        when(refreshTokenService.getRefreshTokenTtl()).thenReturn(Duration.ofDays(14));
+        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(userDetails);
+        when(jwtService.generateToken(userDetails)).thenReturn("jwt-token");
+
+        AuthResponse result = authService.refresh("old-refresh");
+
+        assertEquals("jwt-token", result.token());
+        assertEquals("new-refresh", result.refreshToken());
+    }
+
+    @Test
+    @DisplayName("Выход - отзыв refresh-токена и текущего access-токена")
+    void logout_ShouldRevokeRefreshAndAccessTokens() {
+        Claims claims = mock(Claims.class);
+        Date expiration = new Date();
+        when(claims.getId()).thenReturn("jti");
+        when(claims.getExpiration()).thenReturn(expiration);
+        when(jwtService.parseToken("access")).thenReturn(claims);
+
+        authService.logout("refresh", "access");
+
+        verify(refreshTokenService).revoke("refresh");
+        verify(revocationRegistry).revokeToken("jti", expiration);
+    }
+
     @Test
     @DisplayName("Валидация токена - валидный токен")
     void validateToken_ShouldReturnTrue_WhenTokenIsValid() {
         String token = "valid-token";
         String username = "testuser";
 
+        Claims claims = mock(Claims.class);
         when(userDetailsService.loadUserByUsername(username)).thenReturn(userDetails);
         when(jwtService.isTokenValid(token, userDetails)).thenReturn(true);
+        when(jwtService.parseToken(token)).thenReturn(claims);
 
         boolean result = authService.validateToken(token, username);
 
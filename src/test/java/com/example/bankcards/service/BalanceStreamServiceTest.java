@@ -0,0 +1,96 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.event.BalanceChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class BalanceStreamServiceTest {
+
+    private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BalanceStreamService balanceStreamService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        balanceStreamService = new BalanceStreamService(mock(EncryptionService.class), meterRegistry, 60_000, 2, 1) {
+            @Override
+            SseEmitter createEmitter() {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        balanceStreamService.shutdown();
+    }
+
+    @Test
+    void onBalanceChanged_ShouldDeliverOnlyToOwnerSubscribers() throws Exception {
+        balanceStreamService.subscribe("testuser");
+        balanceStreamService.subscribe("other");
+
+        balanceStreamService.onBalanceChanged(balanceChanged("testuser", 1L));
+
+        assertTrue(emitters.get(0).delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(1, emitters.get(0).sent);
+        assertEquals(0, emitters.get(1).sent);
+        assertEquals(2.0, meterRegistry.get("bankcards.balance.stream.subscribers").gauge().value());
+    }
+
+    @Test
+    void onBalanceChanged_ShouldRemoveSubscriber_WhenSendFails() throws Exception {
+        balanceStreamService.subscribe("testuser");
+        emitters.get(0).failing = true;
+
+        balanceStreamService.onBalanceChanged(balanceChanged("testuser", 1L));
+
+        assertTrue(emitters.get(0).delivered.await(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (balanceStreamService.getSubscriberCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, balanceStreamService.getSubscriberCount());
+    }
+
+    private BalanceChangedEvent balanceChanged(String username, Long cardId) {
+        return new BalanceChangedEvent(username, cardId, "encrypted", new BigDecimal("100.00"), "Test User");
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final CountDownLatch delivered = new CountDownLatch(1);
+        private volatile boolean failing;
+        private volatile int sent;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                if (failing) {
+                    throw new IOException("Broken pipe");
+                }
+                sent++;
+            } finally {
+                delivered.countDown();
+            }
+        }
+    }
+}
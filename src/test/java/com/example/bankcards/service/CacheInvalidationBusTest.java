@@ -0,0 +1,94 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CacheInvalidationBusTest {
+
+    @Test
+    void encode_ShouldSplitBatchByPayloadLimit() {
+        List<String> payloads = CacheInvalidationBus.encode("node1", List.of("c1", "c22", "u5"), 14);
+
+        assertEquals(List.of("node1|c1,c22", "node1|u5"), payloads);
+        assertTrue(CacheInvalidationBus.encode("node1", List.of(), 100).isEmpty());
+    }
+
+    @Test
+    void decode_ShouldCollectIdsFromOtherNodes() {
+        Set<Long> cardIds = new LinkedHashSet<>();
+        Map<Long, Long> userRevocations = new LinkedHashMap<>();
+
+        assertFalse(CacheInvalidationBus.decode("self",
+                "other|c1,c22,u5:1700000000000,u5:1600000000000,u7:bad,x9,cbad", cardIds, userRevocations));
+
+        assertEquals(Set.of(1L, 22L), cardIds);
+        assertEquals(Map.of(5L, 1_700_000_000_000L), userRevocations);
+    }
+
+    @Test
+    void decode_ShouldUseReceiveTime_WhenRevocationTimeIsMissing() {
+        Map<Long, Long> userRevocations = new LinkedHashMap<>();
+        long before = System.currentTimeMillis();
+
+        CacheInvalidationBus.decode("self", "other|u5", new LinkedHashSet<>(), userRevocations);
+
+        assertTrue(userRevocations.get(5L) >= before);
+    }
+
+    @Test
+    void publishUserRevocations_ShouldSendOriginRevocationTime() throws SQLException {
+        CacheInvalidationBus bus = new CacheInvalidationBus(new DataSourceProperties(),
+                mock(ApplicationEventPublisher.class), new SimpleMeterRegistry(), true, 50, 5000, 100);
+        bus.publishUserRevocations(Map.of(5L, 1_700_000_000_000L));
+
+        PreparedStatement notify = mock(PreparedStatement.class);
+        bus.send(notify);
+
+        verify(notify).setString(eq(2), endsWith("|u5:1700000000000"));
+    }
+
+    @Test
+    void decode_ShouldIgnoreOwnMessagesAndDetectFlushAll() {
+        Set<Long> cardIds = new LinkedHashSet<>();
+        Map<Long, Long> userRevocations = new LinkedHashMap<>();
+
+        assertFalse(CacheInvalidationBus.decode("self", "self|c1", cardIds, userRevocations));
+        assertFalse(CacheInvalidationBus.decode("self", "self|*", cardIds, userRevocations));
+        assertTrue(CacheInvalidationBus.decode("self", "other|*", cardIds, userRevocations));
+        assertTrue(cardIds.isEmpty());
+    }
+
+    @Test
+    void send_ShouldBroadcastFlushAllAfterFailedNotify() throws SQLException {
+        CacheInvalidationBus bus = new CacheInvalidationBus(new DataSourceProperties(),
+                mock(ApplicationEventPublisher.class), new SimpleMeterRegistry(), true, 50, 5000, 100);
+        bus.publishCards(List.of(1L, 2L));
+
+        PreparedStatement failing = mock(PreparedStatement.class);
+        when(failing.execute()).thenThrow(new SQLException("connection lost"));
+        assertThrows(SQLException.class, () -> bus.send(failing));
+
+        PreparedStatement notify = mock(PreparedStatement.class);
+        bus.send(notify);
+
+        verify(notify).setString(eq(2), endsWith("|*"));
+        verify(notify, never()).setString(eq(2), contains("c1"));
+        verify(notify, times(1)).execute();
+        verify(notify, atLeastOnce()).setString(eq(1), anyString());
+    }
+}
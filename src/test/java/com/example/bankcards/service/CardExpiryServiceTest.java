@@ -0,0 +1,124 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.event.CardExpiringEvent;
+import com.example.bankcards.repository.CardRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardExpiryServiceTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private EncryptionService encryptionService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private CardViewCache cardViewCache;
+
+    private CardExpiryService cardExpiryService;
+
+    @BeforeEach
+    void setUp() {
+        cardExpiryService = new CardExpiryService(cardRepository, encryptionService, entityManager,
+                outboxService, cardViewCache, transactionManager, 2, 30);
+    }
+
+    @Test
+    void expireCards_ShouldUpdateInKeysetChunks() {
+        LocalDate today = LocalDate.now();
+        when(cardRepository.tryAdvisoryLock(anyString())).thenReturn(true);
+        when(cardRepository.findExpiredActiveCardIds(eq(today), eq(0L), any())).thenReturn(List.of(1L, 5L));
+        when(cardRepository.findExpiredActiveCardIds(eq(today), eq(5L), any())).thenReturn(List.of(9L));
+        when(cardRepository.expireCards(eq(List.of(1L, 5L)), eq(today), any())).thenReturn(2);
+        when(cardRepository.expireCards(eq(List.of(9L)), eq(today), any())).thenReturn(1);
+
+        long expired = cardExpiryService.expireCards();
+
+        assertEquals(3, expired);
+        verify(cardRepository, times(2)).findExpiredActiveCardIds(any(), anyLong(), any());
+        verify(transactionManager, times(4)).commit(any());
+        verify(cardViewCache).invalidateAll(List.of(1L, 5L));
+        verify(cardViewCache).invalidateAll(List.of(9L));
+    }
+
+    @Test
+    void expireCards_ShouldStop_WhenAnotherNodeHoldsLock() {
+        LocalDate today = LocalDate.now();
+        when(cardRepository.findExpiredActiveCardIds(eq(today), eq(0L), any())).thenReturn(List.of(1L, 5L));
+        when(cardRepository.tryAdvisoryLock(anyString())).thenReturn(false);
+
+        long expired = cardExpiryService.expireCards();
+
+        assertEquals(0, expired);
+        verify(cardRepository, never()).expireCards(anyList(), any(), any());
+        verifyNoInteractions(cardViewCache);
+    }
+
+    @Test
+    void notifyExpiringCards_ShouldRecordOutboxEventPerCard() {
+        LocalDate expiryDate = LocalDate.now().plusDays(30);
+        User user = User.builder().id(1L).username("testuser").email("test@example.com").build();
+        Card card = Card.builder()
+                .id(7L)
+                .cardNumber("encrypted")
+                .cardHolderName("Test User")
+                .expiryDate(expiryDate)
+                .status(CardStatus.ACTIVE)
+                .user(user)
+                .build();
+
+        when(cardRepository.tryAdvisoryLock(anyString())).thenReturn(true);
+        when(cardRepository.streamCardsExpiringBetween(expiryDate, expiryDate)).thenReturn(Stream.of(card));
+        when(outboxService.recordCardExpiringEvent(any())).thenReturn(true);
+        when(encryptionService.decrypt("encrypted")).thenReturn("1111222233334444");
+        when(encryptionService.maskCardNumber("1111222233334444")).thenReturn("**** **** **** 4444");
+
+        long notified = cardExpiryService.notifyExpiringCards();
+
+        ArgumentCaptor<CardExpiringEvent> captor = ArgumentCaptor.forClass(CardExpiringEvent.class);
+        verify(outboxService).recordCardExpiringEvent(captor.capture());
+        assertEquals(1, notified);
+        assertEquals(new CardExpiringEvent(7L, 1L, "test@example.com", "**** **** **** 4444", expiryDate),
+                captor.getValue());
+        verify(entityManager).detach(card);
+    }
+
+    @Test
+    void notifyExpiringCards_ShouldSkip_WhenAnotherNodeHoldsLock() {
+        when(cardRepository.tryAdvisoryLock(anyString())).thenReturn(false);
+
+        long notified = cardExpiryService.notifyExpiringCards();
+
+        assertEquals(0, notified);
+        verify(cardRepository, never()).streamCardsExpiringBetween(any(), any());
+        verifyNoInteractions(outboxService);
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.response.CardImportResponse;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.RoleName;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardImportServiceTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private EncryptionService encryptionService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path resultDir;
+
+    private CardImportService cardImportService;
+
+    private User admin;
+
+    @BeforeEach
+    void setUp() {
+        cardImportService = new CardImportService(cardRepository, userRepository, userService, encryptionService,
+                jdbcTemplate, transactionManager, 2, 2, resultDir.toString());
+
+        admin = User.builder()
+                .id(1L)
+                .username("admin")
+                .email("admin@example.com")
+                .firstName("Admin")
+                .lastName("User")
+                .enabled(true)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardImportService.shutdown();
+    }
+
+    @Test
+    void importCards_ShouldInsertValidRowsAndReportErrors() throws Exception {
+        String csv = """
+                username,cardNumber,cardholderName
+                client,1111222233334444,Ivan Petrov
+                client,1111222233334444,Ivan Petrov
+                client,12345,Bad Number
+                ghost,5555666677778888,Nobody
+                client,9999000011112222,"Petrov, Ivan"
+                client,4444333322221111,Existing Card
+                """;
+
+        when(userService.findByUsername("admin")).thenReturn(admin);
+        when(userService.hasRole(1L, RoleName.ROLE_ADMIN)).thenReturn(true);
+        when(userRepository.findIdsByUsernameIn(anyCollection())).thenAnswer(invocation -> {
+            var usernames = (java.util.Collection<String>) invocation.getArgument(0);
+            return usernames.contains("client") ? List.of(view(10L, "client")) : List.of();
+        });
+        when(encryptionService.encrypt(anyString())).thenAnswer(invocation -> "enc-" + invocation.getArgument(0));
+        when(encryptionService.hash(anyString())).thenAnswer(invocation -> "hash-" + invocation.getArgument(0));
+        when(encryptionService.maskCardNumber(anyString())).thenReturn("****");
+        when(cardRepository.findExistingCardNumberHashes(anyCollection()))
+                .thenReturn(Set.of("hash-4444333322221111"));
+        when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class), ArgumentMatchers.<RowMapper<String>>any()))
+                .thenAnswer(invocation -> insertedHashes(invocation.getArgument(1)));
+
+        CardImportResponse response = cardImportService.importCards(input(csv), "admin");
+
+        assertEquals(6, response.totalRows());
+        assertEquals(2, response.imported());
+        assertEquals(4, response.failed());
+
+        List<String> report = Files.readAllLines(Path.of(response.resultFile()));
+        assertEquals(5, report.size());
+        assertTrue(report.get(1).startsWith("3,"));
+        assertTrue(report.stream().anyMatch(line -> line.startsWith("4,") && line.contains("16 цифр")));
+        assertTrue(report.stream().anyMatch(line -> line.startsWith("5,") && line.contains("ghost")));
+        assertTrue(report.stream().anyMatch(line -> line.startsWith("7,") && line.contains("уже существует")));
+        verify(userRepository, times(2)).findIdsByUsernameIn(anyCollection());
+    }
+
+    @Test
+    void importCards_ShouldThrowException_WhenUserIsNotAdmin() {
+        when(userService.findByUsername("admin")).thenReturn(admin);
+        when(userService.hasRole(1L, RoleName.ROLE_ADMIN)).thenReturn(false);
+
+        assertThrows(AccessDeniedException.class,
+                () -> cardImportService.importCards(input("client,1111222233334444,Ivan"), "admin"));
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importCards_ShouldReportRow_WhenConcurrentInsertWins() throws Exception {
+        String csv = """
+                client,1111222233334444,Ivan Petrov
+                client,9999000011112222,Petr Ivanov
+                """;
+
+        when(userService.findByUsername("admin")).thenReturn(admin);
+        when(userService.hasRole(1L, RoleName.ROLE_ADMIN)).thenReturn(true);
+        when(userRepository.findIdsByUsernameIn(anyCollection())).thenReturn(List.of(view(10L, "client")));
+        when(encryptionService.encrypt(anyString())).thenAnswer(invocation -> "enc-" + invocation.getArgument(0));
+        when(encryptionService.hash(anyString())).thenAnswer(invocation -> "hash-" + invocation.getArgument(0));
+        when(encryptionService.maskCardNumber(anyString())).thenReturn("****");
+        when(cardRepository.findExistingCardNumberHashes(anyCollection())).thenReturn(Set.of());
+        // Вторую карту успел вставить другой запрос: ON CONFLICT пропускает ее и RETURNING ее не возвращает
+        when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class)))
+                .thenReturn(List.of("hash-1111222233334444"));
+
+        CardImportResponse response = cardImportService.importCards(input(csv), "admin");
+
+        assertEquals(1, response.imported());
+        assertEquals(1, response.failed());
+        List<String> report = Files.readAllLines(Path.of(response.resultFile()));
+        assertTrue(report.stream().anyMatch(line -> line.startsWith("2,") && line.contains("уже существует")));
+    }
+
+    /**
+     * Хеши номеров, переданные в INSERT: второй параметр каждой строки
+     */
+    private static List<String> insertedHashes(PreparedStatementSetter setter) throws Exception {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        List<String> hashes = new ArrayList<>();
+        doAnswer(invocation -> {
+            if ((int) invocation.getArgument(0) % 10 == 2) {
+                hashes.add(invocation.getArgument(1));
+            }
+            return null;
+        }).when(ps).setString(anyInt(), anyString());
+        setter.setValues(ps);
+        return hashes;
+    }
+
+    private static InputStream input(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static UserRepository.UserIdView view(Long id, String username) {
+        return new UserRepository.UserIdView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getUsername() {
+                return username;
+            }
+        };
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.request.CardCreateRequest;
+import com.example.bankcards.dto.request.CardSearchRequest;
 import com.example.bankcards.dto.response.CardResponse;
 import com.example.bankcards.dto.request.CardUpdateRequest;
 import com.example.bankcards.entity.Card;
@@ -10,18 +11,24 @@ import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.CardNotFoundException;
 import com.example.bankcards.exception.DuplicateCardNumberException;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.ETags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -43,6 +50,11 @@ class CardServiceTest {
     @Mock
     private EncryptionService encryptionService;
 
+    @Spy
+    private CardViewCache cardViewCache = new CardViewCache(new SimpleMeterRegistry(),
+            mock(CacheInvalidationBus.class), mock(PlatformTransactionManager.class), "invalidate", 100,
+            Duration.ofMinutes(5), "", Duration.ofSeconds(5));
+
     @InjectMocks
     private CardService cardService;
 
@@ -80,11 +92,13 @@ class CardServiceTest {
     @Test
     void createCard_ShouldCreateCardSuccessfully() {
         String encryptedCardNumber = "encrypted123456";
+        String cardNumberHash = "hash123456";
         String maskedCardNumber = "**** **** **** 3456";
         
         when(userService.findByUsername("testuser")).thenReturn(testUser);
+        when(encryptionService.hash("1234567890123456")).thenReturn(cardNumberHash);
+        when(cardRepository.existsByCardNumberHash(cardNumberHash)).thenReturn(false);
         when(encryptionService.encrypt("1234567890123456")).thenReturn(encryptedCardNumber);
-        when(cardRepository.existsByCardNumber(encryptedCardNumber)).thenReturn(false);
         when(cardRepository.save(any(Card.class))).thenReturn(testCard);
         when(encryptionService.decrypt(testCard.getCardNumber())).thenReturn("1234567890123456");
         when(encryptionService.maskCardNumber("1234567890123456")).thenReturn(maskedCardNumber);
@@ -99,24 +113,25 @@ class CardServiceTest {
 
         verify(userService).findByUsername("testuser");
         verify(encryptionService).encrypt("1234567890123456");
-        verify(cardRepository).existsByCardNumber(encryptedCardNumber);
+        verify(cardRepository).existsByCardNumberHash(cardNumberHash);
         verify(cardRepository).save(any(Card.class));
     }
 
     @Test
     void createCard_ShouldThrowException_WhenCardNumberExists() {
-        String encryptedCardNumber = "encrypted123456";
+        String cardNumberHash = "hash123456";
         String maskedCardNumber = "**** **** **** 3456";
         
         when(userService.findByUsername("testuser")).thenReturn(testUser);
-        when(encryptionService.encrypt("1234567890123456")).thenReturn(encryptedCardNumber);
-        when(cardRepository.existsByCardNumber(encryptedCardNumber)).thenReturn(true);
+        when(encryptionService.hash("1234567890123456")).thenReturn(cardNumberHash);
+        when(cardRepository.existsByCardNumberHash(cardNumberHash)).thenReturn(true);
         when(encryptionService.maskCardNumber("1234567890123456")).thenReturn(maskedCardNumber);
 
         assertThrows(DuplicateCardNumberException.class, 
                 () -> cardService.createCard(createRequest, "testuser"));
 
         verify(cardRepository, never()).save(any(Card.class));
+        verify(encryptionService, never()).encrypt(anyString());
     }
 
     @Test
@@ -154,6 +169,79 @@ class CardServiceTest {
                 () -> cardService.getCard(1L, "otheruser"));
     }
 
+    @Test
+    void getCard_ShouldServeRepeatedReadsFromCache() {
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
+        when(encryptionService.decrypt(testCard.getCardNumber())).thenReturn("1234567890123456");
+        when(encryptionService.maskCardNumber("1234567890123456")).thenReturn("**** **** **** 3456");
+
+        cardService.getCard(1L, "testuser");
+        CardResponse result = cardService.getCard(1L, "testuser");
+
+        assertEquals("**** **** **** 3456", result.cardNumber());
+        verify(cardRepository, times(1)).findById(1L);
+        verify(encryptionService, times(1)).decrypt(anyString());
+    }
+
+    @Test
+    void blockCard_ShouldRefreshCachedView() {
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
+        when(cardRepository.save(any(Card.class))).thenReturn(testCard);
+        when(encryptionService.decrypt(testCard.getCardNumber())).thenReturn("1234567890123456");
+        when(encryptionService.maskCardNumber("1234567890123456")).thenReturn("**** **** **** 3456");
+
+        assertEquals(CardStatus.ACTIVE, cardService.getCard(1L, "testuser").status());
+        cardService.blockCard(1L, "testuser");
+
+        assertEquals(CardStatus.BLOCKED, cardService.getCard(1L, "testuser").status());
+        verify(cardViewCache).updated(eq(1L), any());
+    }
+
+    @Test
+    void getCardVersion_ShouldUseVersionProjectionWithoutDecrypting() {
+        CardRepository.CardVersionView version = mock(CardRepository.CardVersionView.class);
+        when(version.getOwnerUsername()).thenReturn("testuser");
+        when(version.getVersion()).thenReturn(4L);
+        when(cardRepository.findVersionById(1L)).thenReturn(Optional.of(version));
+
+        long cardVersion = cardService.getCardVersion(1L, "testuser");
+
+        assertEquals(4L, cardVersion);
+        assertNotEquals(ETags.card("card", 1L, cardVersion), ETags.card("balance", 1L, cardVersion));
+        verify(cardRepository, never()).findById(anyLong());
+        verifyNoInteractions(encryptionService);
+    }
+
+    @Test
+    void getCardVersion_ShouldThrowException_WhenUserDoesNotOwnCard() {
+        CardRepository.CardVersionView version = mock(CardRepository.CardVersionView.class);
+        when(version.getOwnerUsername()).thenReturn("testuser");
+        when(cardRepository.findVersionById(1L)).thenReturn(Optional.of(version));
+        when(userService.findByUsername("otheruser")).thenReturn(
+                User.builder().id(2L).username("otheruser").build());
+        when(userService.hasRole(2L, RoleName.ROLE_ADMIN)).thenReturn(false);
+
+        assertThrows(AccessDeniedException.class,
+                () -> cardService.getCardVersion(1L, "otheruser"));
+    }
+
+    @Test
+    void getUserCardsETag_ShouldChangeWithCardSetVersionAndPage() {
+        CardRepository.CardSetVersionView version = mock(CardRepository.CardSetVersionView.class);
+        when(version.getCount()).thenReturn(2L);
+        when(version.getIdSum()).thenReturn(3L);
+        when(version.getVersionSum()).thenReturn(5L, 6L);
+        when(cardRepository.findCardSetVersion("testuser")).thenReturn(version);
+
+        String before = cardService.getUserCardsETag("cards", "testuser", PageRequest.of(0, 10));
+        String after = cardService.getUserCardsETag("cards", "testuser", PageRequest.of(0, 10));
+        String otherPage = cardService.getUserCardsETag("cards", "testuser", PageRequest.of(1, 10));
+
+        assertNotEquals(before, after);
+        assertNotEquals(after, otherPage);
+        assertFalse(after.contains(" "));
+    }
+
     @Test
     void getUserCards_ShouldReturnUserCards() {
         Pageable pageable = PageRequest.of(0, 10);
@@ -209,6 +297,18 @@ class CardServiceTest {
         verify(cardRepository).save(testCard);
     }
 
+    @Test
+    void unblockCard_ShouldSetExpiredStatus_WhenCardIsExpired() {
+        testCard.setStatus(CardStatus.BLOCKED);
+        testCard.setExpiryDate(LocalDate.now().minusDays(1));
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
+        when(cardRepository.save(any(Card.class))).thenReturn(testCard);
+
+        cardService.unblockCard(1L, "testuser");
+
+        assertEquals(CardStatus.EXPIRED, testCard.getStatus());
+    }
+
     @Test
     void deleteCard_ShouldDeleteCardSuccessfully() {
         when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
@@ -285,4 +385,34 @@ class CardServiceTest {
 
         verify(cardRepository, never()).findAllByOrderByCreatedAtDesc(any(Pageable.class));
     }
+
+    @Test
+    void searchCards_ShouldQueryOnlyGivenFilters_WhenUserIsAdmin() {
+        User adminUser = User.builder().id(2L).username("admin").build();
+        Pageable pageable = PageRequest.of(0, 20);
+        CardSearchRequest criteria = new CardSearchRequest(null, null, "test", "3456");
+
+        when(userService.findByUsername("admin")).thenReturn(adminUser);
+        when(userService.hasRole(2L, RoleName.ROLE_ADMIN)).thenReturn(true);
+        when(cardRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(new PageImpl<>(List.of(testCard)));
+
+        Page<CardResponse> result = cardService.searchCards(criteria, "admin", pageable);
+
+        assertEquals(1, result.getTotalElements());
+        verify(cardRepository).findAll(any(Specification.class), eq(pageable));
+    }
+
+    @Test
+    void searchCards_ShouldThrowException_WhenUserIsNotAdmin() {
+        User regularUser = User.builder().id(2L).username("user").build();
+        Pageable pageable = PageRequest.of(0, 20);
+
+        when(userService.findByUsername("user")).thenReturn(regularUser);
+        when(userService.hasRole(2L, RoleName.ROLE_ADMIN)).thenReturn(false);
+
+        assertThrows(AccessDeniedException.class,
+                () -> cardService.searchCards(new CardSearchRequest(null, null, null, null), "user", pageable));
+
+        verify(cardRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
 }
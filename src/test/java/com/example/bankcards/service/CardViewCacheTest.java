@@ -0,0 +1,141 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.event.CacheInvalidationEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CardViewCacheTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    private final CacheInvalidationBus invalidationBus = mock(CacheInvalidationBus.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private String replicaUrl = "";
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void updated_ShouldApplyWriteThroughOnlyAfterCommit() {
+        CardViewCache cache = cache("write-through");
+        cache.get(1L, id -> view(id, "100.00", 0L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.updated(1L, () -> view(1L, "50.00", 1L));
+        assertEquals(new BigDecimal("100.00"), cache.get(1L, id -> fail("не должно загружаться")).balance());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(new BigDecimal("50.00"), cache.get(1L, id -> fail("не должно загружаться")).balance());
+    }
+
+    @Test
+    void updated_ShouldKeepNewerView_WhenCommitsApplyOutOfOrder() {
+        CardViewCache cache = cache("write-through");
+
+        cache.updated(1L, () -> view(1L, "30.00", 2L));
+        cache.updated(1L, () -> view(1L, "50.00", 1L));
+
+        assertEquals(new BigDecimal("30.00"), cache.get(1L, id -> fail("не должно загружаться")).balance());
+    }
+
+    @Test
+    void updated_ShouldInvalidateAndReload_InInvalidateMode() {
+        CardViewCache cache = cache("invalidate");
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(1L, id -> view(id, "100.00", 0L));
+
+        cache.updated(1L, () -> fail("представление не должно строиться"));
+        CardView reloaded = cache.get(1L, id -> {
+            loads.incrementAndGet();
+            return view(id, "70.00", 1L);
+        });
+
+        assertEquals(1, loads.get());
+        assertEquals(new BigDecimal("70.00"), reloaded.balance());
+        verify(invalidationBus).publishCards(List.of(1L));
+    }
+
+    @Test
+    void onRemoteInvalidation_ShouldDropEntriesWithoutRepublishing() {
+        CardViewCache cache = cache("write-through");
+        cache.get(1L, id -> view(id, "100.00", 0L));
+        cache.get(2L, id -> view(id, "200.00", 0L));
+
+        cache.onRemoteInvalidation(new CacheInvalidationEvent(Set.of(1L), Map.of(), false));
+        assertEquals(new BigDecimal("10.00"), cache.get(1L, id -> view(id, "10.00", 0L)).balance());
+        assertEquals(new BigDecimal("200.00"), cache.get(2L, id -> view(id, "20.00", 0L)).balance());
+
+        cache.onRemoteInvalidation(CacheInvalidationEvent.flushAll());
+        assertEquals(new BigDecimal("20.00"), cache.get(2L, id -> view(id, "20.00", 0L)).balance());
+        verifyNoInteractions(invalidationBus);
+    }
+
+    @Test
+    void get_ShouldReloadFromPrimary_AfterRemoteInvalidation_WhenReadingFromReplica() {
+        replicaUrl = "jdbc:postgresql://replica:5432/bankcards";
+        CardViewCache cache = cache("write-through");
+        cache.get(1L, id -> view(id, "100.00", 0L));
+        cache.get(2L, id -> view(id, "200.00", 0L));
+        verifyNoInteractions(transactionManager);
+
+        cache.onRemoteInvalidation(new CacheInvalidationEvent(Set.of(1L), Map.of(), false));
+        assertEquals(new BigDecimal("10.00"), cache.get(1L, id -> view(id, "10.00", 1L)).balance());
+
+        verify(transactionManager).getTransaction(argThat(definition ->
+                definition.isReadOnly()
+                        && definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void get_ShouldReloadFromPrimary_WhenCachedViewIsOlderThanETagVersion() {
+        CardViewCache cache = cache("write-through");
+        cache.get(1L, id -> view(id, "100.00", 3L));
+
+        assertEquals(new BigDecimal("100.00"), cache.get(1L, 3L, id -> fail("актуальная запись не перечитывается")).balance());
+        CardView fresh = cache.get(1L, 4L, id -> view(id, "70.00", 4L));
+
+        assertEquals(4L, fresh.version());
+        assertEquals(new BigDecimal("70.00"), cache.get(1L, id -> view(id, "0.00", 0L)).balance());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void get_ShouldNotCacheMissingCard() {
+        CardViewCache cache = cache("invalidate");
+
+        assertNull(cache.get(1L, id -> null));
+        assertNotNull(cache.get(1L, id -> view(id, "1.00", 0L)));
+    }
+
+    private CardViewCache cache(String mode) {
+        return new CardViewCache(new SimpleMeterRegistry(), invalidationBus, transactionManager, mode, 100,
+                Duration.ofMinutes(5), replicaUrl, Duration.ofSeconds(5));
+    }
+
+    private CardView view(Long id, String balance, long version) {
+        return new CardView(id, "testuser", "**** **** **** 3456", "IVAN IVANOV", CardStatus.ACTIVE,
+                new BigDecimal(balance), NOW.minusDays(1), NOW, version);
+    }
+}
@@ -1,10 +1,20 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.entity.Card;
 import com.example.bankcards.exception.EncryptionException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class EncryptionServiceTest {
@@ -129,4 +139,51 @@ class EncryptionServiceTest {
         assertEquals(cardNumber, encryptionService.decrypt(encrypted1));
         assertEquals(cardNumber, encryptionService.decrypt(encrypted2));
     }
+
+    @Test
+    @DisplayName("Хэширование - одинаковый номер дает одинаковый HMAC")
+    void hash_ShouldBeDeterministic() {
+
+        String cardNumber = "1234567890123456";
+
+
+        String hash1 = encryptionService.hash(cardNumber);
+        String hash2 = encryptionService.hash(cardNumber);
+
+
+        assertEquals(hash1, hash2);
+        assertEquals(64, hash1.length());
+        assertNotEquals(hash1, encryptionService.hash("1234567890123457"));
+        assertNotEquals(hash1, new EncryptionService("OtherKey12345678").hash(cardNumber));
+    }
+
+    @Test
+    @DisplayName("Шифрование - уникальные IV при параллельных вызовах")
+    void encrypt_ConcurrentCalls_ShouldProduceUniqueOutputs() throws Exception {
+        String cardNumber = "1234567890123456";
+
+        List<Callable<String>> tasks = Collections.nCopies(200, () -> encryptionService.encrypt(cardNumber));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        Set<String> results = new HashSet<>();
+        try {
+            for (Future<String> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(200, results.size());
+        results.forEach(encrypted -> assertEquals(cardNumber, encryptionService.decrypt(encrypted)));
+    }
+
+    @Test
+    @DisplayName("Маскирование - по сохраненным последним цифрам без расшифровки")
+    void maskStoredCardNumber_ShouldUseLastFourWithoutDecrypting() {
+        Card card = Card.builder().cardNumber("not-a-ciphertext").cardLastFour("3456").build();
+        Card legacyCard = Card.builder().cardNumber(encryptionService.encrypt("1234567890127890")).build();
+
+        assertEquals("**** **** **** 3456", encryptionService.maskStoredCardNumber(card));
+        assertEquals("**** **** **** 7890", encryptionService.maskStoredCardNumber(legacyCard));
+    }
 }
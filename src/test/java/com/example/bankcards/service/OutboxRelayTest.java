@@ -0,0 +1,109 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.event.OutboxMessage;
+import com.example.bankcards.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private OutboxEventSink sink;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        outboxRelay = new OutboxRelay(outboxEventRepository, sink, transactionManager, meterRegistry,
+                2, 10, Duration.ofDays(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void drain_ShouldPublishBatchesInOrderAndMarkPublished() throws Exception {
+        OutboxEvent first = event(1L);
+        OutboxEvent second = event(2L);
+        OutboxEvent third = event(3L);
+        when(outboxEventRepository.tryRelayLock(anyString())).thenReturn(true);
+        when(outboxEventRepository.findUnpublished(any()))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of(third));
+
+        long published = outboxRelay.drain();
+
+        ArgumentCaptor<List<OutboxMessage>> captor = ArgumentCaptor.forClass(List.class);
+        verify(sink, times(2)).publish(captor.capture());
+        assertEquals(3, published);
+        assertEquals(List.of(1L, 2L), captor.getAllValues().get(0).stream().map(OutboxMessage::id).toList());
+        assertNotNull(first.getPublishedAt());
+        assertNotNull(third.getPublishedAt());
+        assertEquals(3.0, meterRegistry.get("bankcards.outbox.published").counter().count());
+    }
+
+    @Test
+    void drain_ShouldLeaveBatchUnpublished_WhenSinkFails() throws Exception {
+        OutboxEvent event = event(1L);
+        when(outboxEventRepository.tryRelayLock(anyString())).thenReturn(true);
+        when(outboxEventRepository.findUnpublished(any())).thenReturn(List.of(event));
+        doThrow(new IOException("sink unavailable")).when(sink).publish(anyList());
+        when(outboxEventRepository.countByPublishedAtIsNull()).thenReturn(1L);
+        when(outboxEventRepository.findOldestUnpublishedCreatedAt()).thenReturn(event.getCreatedAt());
+
+        long published = outboxRelay.drain();
+
+        assertEquals(0, published);
+        assertNull(event.getPublishedAt());
+        verify(outboxEventRepository, never()).saveAll(anyList());
+        verify(transactionManager).rollback(any());
+        assertEquals(1.0, meterRegistry.get("bankcards.outbox.backlog").gauge().value());
+        assertTrue(meterRegistry.get("bankcards.outbox.lag").gauge().value() >= 60_000);
+    }
+
+    @Test
+    void drain_ShouldSkipPass_WhenAnotherNodeHoldsRelayLock() throws Exception {
+        when(outboxEventRepository.tryRelayLock(anyString())).thenReturn(false);
+
+        long published = outboxRelay.drain();
+
+        assertEquals(0, published);
+        verify(outboxEventRepository, never()).findUnpublished(any());
+        verify(sink, never()).publish(anyList());
+    }
+
+    private OutboxEvent event(Long id) {
+        return OutboxEvent.builder()
+                .id(id)
+                .aggregateType("TRANSACTION")
+                .aggregateId(id)
+                .eventType("TRANSFER_COMPLETED")
+                .payload("{}")
+                .createdAt(LocalDateTime.now().minusMinutes(1))
+                .build();
+    }
+}
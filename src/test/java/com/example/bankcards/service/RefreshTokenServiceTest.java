@@ -0,0 +1,151 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.event.CacheInvalidationEvent;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.TokenRevocationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TokenRevocationRegistry revocationRegistry;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    private RefreshTokenService refreshTokenService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, userRepository, revocationRegistry,
+                invalidationBus, Duration.ofDays(14));
+        user = User.builder().id(1L).username("testuser").enabled(true).build();
+    }
+
+    @Test
+    void issue_ShouldStoreOnlyTokenHash() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        String token = refreshTokenService.issue("testuser");
+
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(captor.capture());
+        RefreshToken saved = captor.getValue();
+        assertEquals(RefreshTokenService.hash(token), saved.getTokenHash());
+        assertNotEquals(token, saved.getTokenHash());
+        assertNotNull(saved.getFamilyId());
+        assertTrue(saved.getExpiresAt().isAfter(LocalDateTime.now().plusDays(13)));
+    }
+
+    @Test
+    void rotate_ShouldMarkTokenUsedAndIssueTokenOfSameFamily() {
+        RefreshToken current = token(null, null, LocalDateTime.now().plusDays(1));
+        when(refreshTokenRepository.findByTokenHashForUpdate(RefreshTokenService.hash("raw")))
+                .thenReturn(Optional.of(current));
+
+        RefreshTokenService.IssuedToken rotated = refreshTokenService.rotate("raw");
+
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(captor.capture());
+        assertNotNull(current.getUsedAt());
+        assertEquals("family", captor.getValue().getFamilyId());
+        assertEquals(RefreshTokenService.hash(rotated.token()), captor.getValue().getTokenHash());
+        assertEquals("testuser", rotated.username());
+    }
+
+    @Test
+    void rotate_ShouldRevokeFamily_WhenTokenIsReused() {
+        RefreshToken used = token(LocalDateTime.now().minusMinutes(1), null, LocalDateTime.now().plusDays(1));
+        when(refreshTokenRepository.findByTokenHashForUpdate(anyString())).thenReturn(Optional.of(used));
+
+        assertThrows(BadCredentialsException.class, () -> refreshTokenService.rotate("raw"));
+
+        ArgumentCaptor<Long> revokedAt = ArgumentCaptor.forClass(Long.class);
+        verify(refreshTokenRepository).revokeFamily(eq("family"), any());
+        verify(revocationRegistry).revokeUser(eq("testuser"), revokedAt.capture());
+        verify(invalidationBus).publishUserRevocations(Map.of(1L, revokedAt.getValue()));
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void revokeAccessTokens_ShouldRevokeOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            refreshTokenService.revokeAccessTokens(user);
+            verify(revocationRegistry, never()).revokeUser(any(), anyLong());
+            verify(invalidationBus, never()).publishUserRevocations(any());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(revocationRegistry).revokeUser(eq("testuser"), anyLong());
+            verify(invalidationBus).publishUserRevocations(any());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void onRemoteInvalidation_ShouldRevokeAccessTokensOfInvalidatedUsers() {
+        when(userRepository.findAllById(Set.of(1L))).thenReturn(List.of(user));
+
+        refreshTokenService.onRemoteInvalidation(new CacheInvalidationEvent(Set.of(), Map.of(1L, 1_700_000_000_000L), false));
+        refreshTokenService.onRemoteInvalidation(CacheInvalidationEvent.flushAll());
+
+        verify(revocationRegistry, times(1)).revokeUser("testuser", 1_700_000_000_000L);
+        verify(invalidationBus, never()).publishUserRevocations(any());
+    }
+
+    @Test
+    void rotate_ShouldReject_WhenTokenIsExpired() {
+        RefreshToken expired = token(null, null, LocalDateTime.now().minusSeconds(1));
+        when(refreshTokenRepository.findByTokenHashForUpdate(anyString())).thenReturn(Optional.of(expired));
+
+        assertThrows(BadCredentialsException.class, () -> refreshTokenService.rotate("raw"));
+
+        verify(refreshTokenRepository, never()).revokeFamily(any(), any());
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    private RefreshToken token(LocalDateTime usedAt, LocalDateTime revokedAt, LocalDateTime expiresAt) {
+        return RefreshToken.builder()
+                .id(10L)
+                .user(user)
+                .familyId("family")
+                .tokenHash(RefreshTokenService.hash("raw"))
+                .createdAt(LocalDateTime.now().minusDays(1))
+                .expiresAt(expiresAt)
+                .usedAt(usedAt)
+                .revokedAt(revokedAt)
+                .build();
+    }
+}
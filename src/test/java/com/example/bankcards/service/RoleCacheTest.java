@@ -0,0 +1,60 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.enums.RoleName;
+import com.example.bankcards.repository.RoleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoleCacheTest {
+
+    @Mock
+    private RoleRepository roleRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RoleCache roleCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        roleCache = new RoleCache(roleRepository, meterRegistry);
+    }
+
+    @Test
+    void findByName_ShouldServeRolesFromMemoryAfterPreload() {
+        Role userRole = Role.builder().id(1L).name(RoleName.ROLE_USER).build();
+        Role adminRole = Role.builder().id(2L).name(RoleName.ROLE_ADMIN).build();
+        when(roleRepository.findAll()).thenReturn(List.of(userRole, adminRole));
+
+        roleCache.preload();
+
+        assertSame(adminRole, roleCache.findByName(RoleName.ROLE_ADMIN).orElseThrow());
+        assertSame(userRole, roleCache.findByName(RoleName.ROLE_USER).orElseThrow());
+        verify(roleRepository, times(1)).findAll();
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void findByName_ShouldReloadOnMiss() {
+        Role userRole = Role.builder().id(1L).name(RoleName.ROLE_USER).build();
+        when(roleRepository.findAll()).thenReturn(List.of(userRole));
+
+        assertEquals(userRole, roleCache.findByName(RoleName.ROLE_USER).orElseThrow());
+        assertTrue(roleCache.findByName(RoleName.ROLE_ADMIN).isEmpty());
+
+        verify(roleRepository, times(2)).findAll();
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("result", "miss").counter().count());
+        assertEquals(0.0, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+    }
+}
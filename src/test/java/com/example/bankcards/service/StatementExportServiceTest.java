@@ -0,0 +1,171 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleName;
+import com.example.bankcards.entity.enums.TransactionStatus;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.util.StatementFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatementExportServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private EncryptionService encryptionService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private StatementExportService statementExportService;
+
+    private User testUser;
+    private Card fromCard;
+    private Card toCard;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        statementExportService = new StatementExportService(
+                transactionRepository, cardRepository, userService, encryptionService, entityManager, objectMapper);
+
+        testUser = User.builder()
+                .id(1L)
+                .username("testuser")
+                .email("test@example.com")
+                .firstName("Test")
+                .lastName("User")
+                .enabled(true)
+                .build();
+
+        fromCard = Card.builder()
+                .id(1L)
+                .cardNumber("encrypted-1")
+                .cardHolderName("Test User")
+                .expiryDate(LocalDate.now().plusYears(3))
+                .status(CardStatus.ACTIVE)
+                .user(testUser)
+                .build();
+
+        toCard = Card.builder()
+                .id(2L)
+                .cardNumber("encrypted-2")
+                .cardHolderName("Test User")
+                .expiryDate(LocalDate.now().plusYears(3))
+                .status(CardStatus.ACTIVE)
+                .user(testUser)
+                .build();
+    }
+
+    @Test
+    void exportCardTransactions_ShouldWriteCsvAndDecryptEachCardOnce() throws Exception {
+        when(transactionRepository.streamByCardId(1L)).thenReturn(Stream.of(
+                transaction(10L, "Обед, кафе"),
+                transaction(11L, "Say \"hi\"")));
+        when(encryptionService.decrypt("encrypted-1")).thenReturn("1111222233334444");
+        when(encryptionService.decrypt("encrypted-2")).thenReturn("5555666677778888");
+        when(encryptionService.maskCardNumber("1111222233334444")).thenReturn("**** **** **** 4444");
+        when(encryptionService.maskCardNumber("5555666677778888")).thenReturn("**** **** **** 8888");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long rows = statementExportService.exportCardTransactions(1L, StatementFormat.CSV, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(2, rows);
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("id,transactionDate"));
+        assertTrue(lines[1].startsWith("10,"));
+        assertTrue(lines[1].contains("**** **** **** 4444"));
+        assertTrue(lines[1].endsWith(",100.00,COMPLETED,\"Обед, кафе\","));
+        assertTrue(lines[2].endsWith(",\"Say \"\"hi\"\"\","));
+
+        verify(encryptionService, times(1)).decrypt("encrypted-1");
+        verify(encryptionService, times(1)).decrypt("encrypted-2");
+        verify(entityManager, times(2)).detach(any(Transaction.class));
+    }
+
+    @Test
+    void exportCardTransactions_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        when(transactionRepository.streamByCardId(1L)).thenReturn(Stream.of(
+                transaction(10L, "first"),
+                transaction(11L, "second")));
+        when(encryptionService.decrypt(any())).thenReturn("1111222233334444");
+        when(encryptionService.maskCardNumber("1111222233334444")).thenReturn("**** **** **** 4444");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        statementExportService.exportCardTransactions(1L, StatementFormat.NDJSON, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":10,"));
+        assertTrue(lines[1].contains("\"description\":\"second\""));
+    }
+
+    @Test
+    void checkCardAccess_ShouldThrowException_WhenCardNotFound() {
+        when(cardRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(CardNotFoundException.class,
+                () -> statementExportService.checkCardAccess(1L, "testuser"));
+    }
+
+    @Test
+    void checkCardAccess_ShouldThrowException_WhenUserIsNotOwnerOrAdmin() {
+        User otherUser = User.builder().id(2L).username("other").build();
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+        when(userService.findByUsername("other")).thenReturn(otherUser);
+        when(userService.hasRole(2L, RoleName.ROLE_ADMIN)).thenReturn(false);
+
+        assertThrows(AccessDeniedException.class,
+                () -> statementExportService.checkCardAccess(1L, "other"));
+    }
+
+    private Transaction transaction(Long id, String description) {
+        return Transaction.builder()
+                .id(id)
+                .fromCard(fromCard)
+                .toCard(toCard)
+                .amount(new BigDecimal("100.00"))
+                .description(description)
+                .status(TransactionStatus.COMPLETED)
+                .transactionDate(LocalDateTime.now())
+                .completedAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.util.TransactionSegment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionArchiveStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void findLatestByCard_ShouldMergeSegmentsAndApplyPeriod() throws IOException {
+        TransactionArchiveStore store = new TransactionArchiveStore(tempDir.toString());
+        TransactionSegment.Row january = row(1L, LocalDateTime.of(2025, 1, 15, 10, 0));
+        TransactionSegment.Row february = row(2L, LocalDateTime.of(2025, 2, 3, 9, 0));
+        store.append(YearMonth.of(2025, 1), List.of(january));
+        store.append(YearMonth.of(2025, 2), List.of(february));
+        // Повторная архивация той же строки не дает дубликата
+        store.append(YearMonth.of(2025, 2), List.of(february));
+
+        assertEquals(new TransactionArchiveStore.ArchivedRows(List.of(february, january), 2),
+                store.findLatestByCard(7L, null, null, 10, null));
+        assertEquals(new TransactionArchiveStore.ArchivedRows(List.of(february), 1),
+                store.findLatestByCard(7L, LocalDateTime.of(2025, 2, 1, 0, 0), null, 10, null));
+        assertTrue(store.findLatestByCard(8L, null, null, 10, null).rows().isEmpty());
+    }
+
+    @Test
+    void findLatestByCard_ShouldStopReadingOlderMonths_WhenLimitIsReached() throws IOException {
+        TransactionArchiveStore store = new TransactionArchiveStore(tempDir.toString());
+        TransactionSegment.Row january = row(1L, LocalDateTime.of(2025, 1, 15, 10, 0));
+        TransactionSegment.Row march = row(3L, LocalDateTime.of(2025, 3, 2, 8, 0));
+        TransactionSegment.Row marchLater = row(4L, LocalDateTime.of(2025, 3, 20, 8, 0));
+        store.append(YearMonth.of(2025, 1), List.of(january));
+        store.append(YearMonth.of(2025, 3), List.of(march));
+        store.append(YearMonth.of(2025, 3), List.of(marchLater));
+
+        // Март дочитывается целиком, январь учитывается только в количестве
+        assertEquals(new TransactionArchiveStore.ArchivedRows(List.of(marchLater, march), 3),
+                store.findLatestByCard(7L, null, null, 1, null));
+        // Строки старше notOlderThan не нужны: сегменты только считаются
+        assertEquals(new TransactionArchiveStore.ArchivedRows(List.of(), 3),
+                store.findLatestByCard(7L, null, null, 10, LocalDateTime.of(2025, 4, 1, 0, 0)));
+    }
+
+    @Test
+    void overlaps_ShouldDetectArchivedMonthsInPeriod() throws IOException {
+        TransactionArchiveStore store = new TransactionArchiveStore(tempDir.toString());
+        assertFalse(store.overlaps(null, null));
+
+        store.append(YearMonth.of(2025, 1), List.of(row(1L, LocalDateTime.of(2025, 1, 15, 10, 0))));
+
+        assertTrue(store.overlaps(null, null));
+        assertTrue(store.overlaps(LocalDateTime.of(2025, 1, 31, 0, 0), null));
+        assertFalse(store.overlaps(LocalDateTime.of(2025, 2, 1, 0, 0), null));
+        assertFalse(store.overlaps(null, LocalDateTime.of(2025, 1, 1, 0, 0)));
+        // Каталоги, записанные до запуска, находятся при создании хранилища
+        assertTrue(new TransactionArchiveStore(tempDir.toString()).overlaps(null, null));
+    }
+
+    private TransactionSegment.Row row(long id, LocalDateTime date) {
+        return new TransactionSegment.Row(id, 7L, 9L, new BigDecimal("10.00"), null, "COMPLETED", date, date, null);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransactionPartitionManagerTest {
+
+    @Test
+    void partitionName_ShouldUseYearAndMonth() {
+        assertEquals("transactions_p202603", TransactionPartitionManager.partitionName(YearMonth.of(2026, 3)));
+    }
+
+    @Test
+    void expiredPartitions_ShouldSelectOnlyMonthlyPartitionsBeforeRetention() {
+        List<String> partitions = List.of(
+                "transactions_p202605", "transactions_default", "transactions_p202603",
+                "transactions_p202604", "transactions_p202606");
+
+        List<String> expired = TransactionPartitionManager.expiredPartitions(partitions, YearMonth.of(2026, 5));
+
+        assertEquals(List.of("transactions_p202603", "transactions_p202604"), expired);
+    }
+
+    @Test
+    void monthsToCreate_ShouldAddMonthsOfRowsInDefaultPartition() {
+        List<YearMonth> months = TransactionPartitionManager.monthsToCreate(YearMonth.of(2026, 5), 1,
+                List.of(LocalDate.of(2025, 12, 1), LocalDate.of(2026, 6, 1)));
+
+        assertEquals(List.of(YearMonth.of(2025, 12), YearMonth.of(2026, 5), YearMonth.of(2026, 6)), months);
+    }
+}
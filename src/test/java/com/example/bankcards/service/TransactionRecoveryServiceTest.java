@@ -0,0 +1,94 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.enums.TransactionStatus;
+import com.example.bankcards.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionRecoveryServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TransactionRecoveryService transactionRecoveryService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        transactionRecoveryService = new TransactionRecoveryService(
+                transactionRepository, outboxService, transactionManager, meterRegistry, Duration.ofMinutes(5), 2, 10);
+    }
+
+    @Test
+    void recoverStaleTransactions_ShouldMarkPendingAsFailedInBatches() {
+        Transaction first = pending(1L);
+        Transaction second = pending(2L);
+        second.setTransactionDate(first.getTransactionDate().plusSeconds(1));
+        Transaction third = pending(3L);
+        when(transactionRepository.findByStatusAndTransactionDateBefore(eq(TransactionStatus.PENDING), any(), any()))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of(third));
+        when(transactionRepository.countByStatusAndTransactionDateBefore(eq(TransactionStatus.PENDING), any()))
+                .thenReturn(0L);
+
+        long resolved = transactionRecoveryService.recoverStaleTransactions();
+
+        assertEquals(3, resolved);
+        assertEquals(TransactionStatus.FAILED, first.getStatus());
+        assertEquals(TransactionStatus.FAILED, third.getStatus());
+        assertEquals(TransactionRecoveryService.RECOVERY_ERROR_MESSAGE, second.getErrorMessage());
+        verify(transactionRepository).markAllAsFailed(eq(List.of(1L, 2L)), eq(first.getTransactionDate()),
+                eq(second.getTransactionDate()), eq(TransactionRecoveryService.RECOVERY_ERROR_MESSAGE), any());
+        verify(transactionRepository).markAllAsFailed(eq(List.of(3L)), eq(third.getTransactionDate()),
+                eq(third.getTransactionDate()), anyString(), any());
+        verify(transactionRepository, never()).saveAll(anyList());
+        verify(outboxService, times(3)).recordTransferEvent(any(Transaction.class));
+        assertEquals(3.0, meterRegistry.get("bankcards.transactions.recovery.resolved").counter().count());
+    }
+
+    @Test
+    void sweep_ShouldRecordDurationAndBacklog() {
+        when(transactionRepository.findByStatusAndTransactionDateBefore(eq(TransactionStatus.PENDING), any(), any()))
+                .thenReturn(List.of());
+        when(transactionRepository.countByStatusAndTransactionDateBefore(eq(TransactionStatus.PENDING), any()))
+                .thenReturn(7L);
+
+        transactionRecoveryService.sweep();
+
+        assertEquals(1, meterRegistry.get("bankcards.transactions.recovery.duration").timer().count());
+        assertEquals(7.0, meterRegistry.get("bankcards.transactions.pending.stale").gauge().value());
+    }
+
+    private Transaction pending(Long id) {
+        return Transaction.builder()
+                .id(id)
+                .amount(new BigDecimal("10.00"))
+                .status(TransactionStatus.PENDING)
+                .transactionDate(LocalDateTime.now().minusHours(1))
+                .build();
+    }
+}
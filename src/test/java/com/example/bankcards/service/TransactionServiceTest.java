@@ -2,6 +2,8 @@ package com.example.bankcards.service;
 
 import com.example.bankcards.dto.response.BalanceResponse;
 import com.example.bankcards.dto.request.TransactionCreateRequest;
+import com.example.bankcards.dto.request.TransactionSearchRequest;
+import com.example.bankcards.dto.response.TransactionSliceResponse;
 import com.example.bankcards.dto.response.TransactionResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.enums.CardStatus;
@@ -9,25 +11,38 @@ import com.example.bankcards.entity.enums.RoleName;
 import com.example.bankcards.entity.Transaction;
 import com.example.bankcards.entity.enums.TransactionStatus;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.event.BalanceChangedEvent;
 import com.example.bankcards.exception.CardNotFoundException;
 import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.InvalidCursorException;
 import com.example.bankcards.exception.InvalidTransactionException;
 import com.example.bankcards.exception.TransactionNotFoundException;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.util.TransactionCursor;
+import com.example.bankcards.util.TransactionSegment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -52,6 +67,23 @@ class TransactionServiceTest {
     @Mock
     private EncryptionService encryptionService;
 
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TransactionArchiveStore archiveStore;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private CardViewCache cardViewCache = new CardViewCache(new SimpleMeterRegistry(),
+            mock(CacheInvalidationBus.class), mock(PlatformTransactionManager.class), "invalidate", 100,
+            Duration.ofMinutes(5), "", Duration.ofSeconds(5));
+
     @InjectMocks
     private TransactionService transactionService;
 
@@ -127,8 +159,43 @@ class TransactionServiceTest {
         verify(userService).findByUsername("testuser");
         verify(cardRepository).findById(1L);
         verify(cardRepository).findById(2L);
-        verify(transactionRepository, times(2)).save(any(Transaction.class));
+        // Одна вставка сразу со статусом COMPLETED, без UPDATE по id
+        verify(transactionRepository).save(argThat(transaction -> transaction.getStatus() == TransactionStatus.COMPLETED));
         verify(cardRepository, times(2)).save(any(Card.class));
+        verify(outboxService).recordTransferEvent(any(Transaction.class));
+        verify(eventPublisher, times(2)).publishEvent(any(BalanceChangedEvent.class));
+    }
+
+    @Test
+    void createTransfer_ShouldRetryInNewTransaction_WhenCardVersionConflicts() {
+        when(userService.findByUsername("testuser")).thenReturn(testUser);
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
+        doThrow(new ObjectOptimisticLockingFailureException(Card.class, 1L))
+                .doNothing()
+                .when(transactionManager).commit(any());
+
+        TransactionResponse result = transactionService.createTransfer(createRequest, "testuser");
+
+        assertEquals(TransactionStatus.COMPLETED, result.status());
+        verify(transactionManager, times(2)).getTransaction(any());
+        verify(cardRepository, times(2)).findById(1L);
+        verify(outboxService, times(2)).recordTransferEvent(any(Transaction.class));
+    }
+
+    @Test
+    void createTransfer_ShouldGiveUp_WhenConflictsPersist() {
+        when(userService.findByUsername("testuser")).thenReturn(testUser);
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
+        doThrow(new ObjectOptimisticLockingFailureException(Card.class, 1L)).when(transactionManager).commit(any());
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> transactionService.createTransfer(createRequest, "testuser"));
+
+        verify(transactionManager, times(3)).getTransaction(any());
     }
 
     @Test
@@ -274,7 +341,7 @@ class TransactionServiceTest {
         when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
         when(transactionRepository.findByCardId(1L, pageable)).thenReturn(transactionPage);
 
-        Page<TransactionResponse> result = transactionService.getCardTransactions(1L, "testuser", pageable);
+        Page<TransactionResponse> result = transactionService.getCardTransactions(1L, "testuser", null, null, pageable);
 
         assertNotNull(result);
         assertEquals(1, result.getTotalElements());
@@ -282,6 +349,128 @@ class TransactionServiceTest {
         verify(transactionRepository).findByCardId(1L, pageable);
     }
 
+    @Test
+    void getCardTransactions_ShouldQueryPeriod_WhenBoundsGiven() {
+        Pageable pageable = PageRequest.of(0, 10);
+        LocalDateTime from = LocalDateTime.now().minusMonths(1);
+
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+        when(transactionRepository.findAll(any(Specification.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(testTransaction)));
+
+        Page<TransactionResponse> result = transactionService.getCardTransactions(1L, "testuser", from, null, pageable);
+
+        assertEquals(1, result.getTotalElements());
+        verify(transactionRepository).findAll(any(Specification.class),
+                eq(PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "transactionDate", "id"))));
+        verify(transactionRepository, never()).findByCardId(anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void getCardTransactions_ShouldMergeArchivedRows_WhenPeriodReachesArchive() {
+        Pageable pageable = PageRequest.of(0, 10);
+        LocalDateTime archivedDate = testTransaction.getTransactionDate().minusYears(2);
+        TransactionSegment.Row archived = new TransactionSegment.Row(7L, 1L, 3L, new BigDecimal("5.00"),
+                "Архивный перевод", "COMPLETED", archivedDate, archivedDate, null);
+
+        LocalDateTime from = archivedDate.minusDays(1);
+
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+        when(archiveStore.overlaps(from, null)).thenReturn(true);
+        when(transactionRepository.findAll(any(Specification.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(testTransaction)));
+        when(archiveStore.findLatestByCard(1L, from, null, 10, null))
+                .thenReturn(new TransactionArchiveStore.ArchivedRows(List.of(archived), 1));
+        when(cardRepository.findAllById(any())).thenReturn(List.of(fromCard));
+        when(encryptionService.decrypt(anyString())).thenReturn("1234567890123456");
+        when(encryptionService.maskCardNumber(anyString())).thenReturn("**** **** **** 3456");
+
+        Page<TransactionResponse> result = transactionService.getCardTransactions(1L, "testuser", from, null, pageable);
+
+        assertEquals(2, result.getTotalElements());
+        assertEquals(List.of(1L, 7L), result.getContent().stream().map(TransactionResponse::id).toList());
+        assertEquals("**** **** **** 3456", result.getContent().get(1).fromCardNumber());
+        assertEquals("**** **** **** ****", result.getContent().get(1).toCardNumber());
+        verify(transactionRepository, never()).findByCardId(anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void getCardTransactions_ShouldNotReadArchive_WhenNothingIsArchived() {
+        Pageable pageable = PageRequest.of(0, 10);
+
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+        when(transactionRepository.findByCardId(1L, pageable)).thenReturn(new PageImpl<>(List.of(testTransaction)));
+
+        transactionService.getCardTransactions(1L, "testuser", null, null, pageable);
+
+        verify(archiveStore, never()).findLatestByCard(anyLong(), any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void getCardTransactions_ShouldMergeArchive_WhenHistoryIsOpenEnded() {
+        Pageable pageable = PageRequest.of(1, 1);
+        Transaction older = Transaction.builder()
+                .id(2L)
+                .fromCard(fromCard)
+                .toCard(toCard)
+                .amount(new BigDecimal("1.00"))
+                .status(TransactionStatus.COMPLETED)
+                .transactionDate(testTransaction.getTransactionDate().minusDays(1))
+                .build();
+        LocalDateTime archivedDate = testTransaction.getTransactionDate().minusYears(2);
+        TransactionSegment.Row archived = new TransactionSegment.Row(7L, 1L, 3L, new BigDecimal("5.00"),
+                null, "COMPLETED", archivedDate, archivedDate, null);
+
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+        when(archiveStore.overlaps(null, null)).thenReturn(true);
+        when(transactionRepository.findAll(any(Specification.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(testTransaction, older), PageRequest.of(0, 2), 2));
+        // Окно БД заполнено: архив нужен только старше его последней строки и для общего количества
+        when(archiveStore.findLatestByCard(1L, null, null, 2, older.getTransactionDate()))
+                .thenReturn(new TransactionArchiveStore.ArchivedRows(List.of(), 40));
+
+        Page<TransactionResponse> result = transactionService.getCardTransactions(1L, "testuser", null, null, pageable);
+
+        assertEquals(42, result.getTotalElements());
+        assertEquals(List.of(2L), result.getContent().stream().map(TransactionResponse::id).toList());
+        verify(transactionRepository, never()).findByCardId(anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void getCardTransactions_ShouldSubtractDuplicatesOutsidePage_WhenMergingArchive() {
+        Pageable pageable = PageRequest.of(0, 1);
+        LocalDateTime from = testTransaction.getTransactionDate().minusYears(3);
+        LocalDateTime archivedDate = testTransaction.getTransactionDate().minusYears(2);
+        TransactionSegment.Row archived = new TransactionSegment.Row(7L, 1L, 3L, new BigDecimal("5.00"),
+                null, "COMPLETED", archivedDate, archivedDate, null);
+
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+        when(archiveStore.overlaps(from, null)).thenReturn(true);
+        // Строка 7 еще в БД, но за пределами окна первой страницы
+        when(transactionRepository.findAll(any(Specification.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(testTransaction), PageRequest.of(0, 1), 2));
+        when(archiveStore.findLatestByCard(1L, from, null, 1, testTransaction.getTransactionDate()))
+                .thenReturn(new TransactionArchiveStore.ArchivedRows(List.of(archived), 1));
+        when(transactionRepository.count(any(Specification.class))).thenReturn(1L);
+
+        Page<TransactionResponse> result = transactionService.getCardTransactions(1L, "testuser", from, null, pageable);
+
+        assertEquals(2, result.getTotalElements());
+        assertEquals(List.of(1L), result.getContent().stream().map(TransactionResponse::id).toList());
+    }
+
+    @Test
+    void getCardTransactions_ShouldRejectCustomSort_WhenMergingArchive() {
+        LocalDateTime from = testTransaction.getTransactionDate().minusYears(3);
+
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+        when(archiveStore.overlaps(from, null)).thenReturn(true);
+
+        assertThrows(InvalidTransactionException.class, () -> transactionService.getCardTransactions(
+                1L, "testuser", from, null, PageRequest.of(0, 10, Sort.by("amount"))));
+        verify(archiveStore, never()).findLatestByCard(anyLong(), any(), any(), anyInt(), any());
+    }
+
     @Test
     void getInternalTransfers_ShouldReturnInternalTransfers() {
         Pageable pageable = PageRequest.of(0, 10);
@@ -366,4 +555,58 @@ class TransactionServiceTest {
 
         verify(transactionRepository, never()).findAll(any(Pageable.class));
     }
+
+    @Test
+    void searchTransactions_ShouldReturnNextCursor_WhenMoreRowsExist() {
+        User adminUser = User.builder().id(2L).username("admin").build();
+        Transaction older = Transaction.builder()
+                .id(2L)
+                .fromCard(fromCard)
+                .toCard(toCard)
+                .amount(new BigDecimal("50.00"))
+                .status(TransactionStatus.COMPLETED)
+                .transactionDate(testTransaction.getTransactionDate().minusMinutes(1))
+                .build();
+        TransactionSearchRequest criteria = new TransactionSearchRequest(
+                TransactionStatus.COMPLETED, null, 1L, null, null, null, null, null, 1);
+
+        when(userService.findByUsername("admin")).thenReturn(adminUser);
+        when(userService.hasRole(2L, RoleName.ROLE_ADMIN)).thenReturn(true);
+        when(transactionRepository.findBy(any(Specification.class), any())).thenReturn(List.of(testTransaction, older));
+
+        TransactionSliceResponse result = transactionService.searchTransactions(criteria, "admin");
+
+        assertEquals(1, result.content().size());
+        assertEquals(1L, result.content().get(0).id());
+        assertEquals(TransactionCursor.of(testTransaction), TransactionCursor.decode(result.nextCursor()));
+    }
+
+    @Test
+    void searchTransactions_ShouldReturnNoCursor_OnLastPage() {
+        User adminUser = User.builder().id(2L).username("admin").build();
+        TransactionSearchRequest criteria = new TransactionSearchRequest(
+                null, null, null, null, null, null, null, TransactionCursor.of(testTransaction).encode(), null);
+
+        when(userService.findByUsername("admin")).thenReturn(adminUser);
+        when(userService.hasRole(2L, RoleName.ROLE_ADMIN)).thenReturn(true);
+        when(transactionRepository.findBy(any(Specification.class), any())).thenReturn(List.of());
+
+        TransactionSliceResponse result = transactionService.searchTransactions(criteria, "admin");
+
+        assertTrue(result.content().isEmpty());
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    void searchTransactions_ShouldRejectMalformedCursor() {
+        User adminUser = User.builder().id(2L).username("admin").build();
+        TransactionSearchRequest criteria = new TransactionSearchRequest(
+                null, null, null, null, null, null, null, "not-a-cursor", null);
+
+        when(userService.findByUsername("admin")).thenReturn(adminUser);
+        when(userService.hasRole(2L, RoleName.ROLE_ADMIN)).thenReturn(true);
+
+        assertThrows(InvalidCursorException.class, () -> transactionService.searchTransactions(criteria, "admin"));
+        verify(transactionRepository, never()).findBy(any(Specification.class), any());
+    }
 }
@@ -5,7 +5,6 @@ import com.example.bankcards.entity.enums.RoleName;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.UserAlreadyExistsException;
 import com.example.bankcards.exception.UserNotFoundException;
-import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -30,11 +29,14 @@ class UserServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private RoleRepository roleRepository;
+    private RoleCache roleCache;
 
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
     @InjectMocks
     private UserService userService;
 
@@ -67,7 +69,7 @@ class UserServiceTest {
 
         when(userRepository.existsByUsername(username)).thenReturn(false);
         when(userRepository.existsByEmail(email)).thenReturn(false);
-        when(roleRepository.findByName(RoleName.ROLE_USER)).thenReturn(Optional.of(userRole));
+        when(roleCache.findByName(RoleName.ROLE_USER)).thenReturn(Optional.of(userRole));
         when(passwordEncoder.encode(password)).thenReturn(encodedPassword);
         when(userRepository.save(any(User.class))).thenReturn(testUser);
 
@@ -147,6 +149,7 @@ class UserServiceTest {
 
         assertFalse(result.getEnabled());
         verify(userRepository).save(testUser);
+        verify(refreshTokenService).revokeAll(testUser);
     }
 
     @Test
@@ -155,7 +158,7 @@ class UserServiceTest {
         Role adminRole = Role.builder().id(2L).name(RoleName.ROLE_ADMIN).build();
         
         when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
-        when(roleRepository.findByName(RoleName.ROLE_ADMIN)).thenReturn(Optional.of(adminRole));
+        when(roleCache.findByName(RoleName.ROLE_ADMIN)).thenReturn(Optional.of(adminRole));
         when(userRepository.save(testUser)).thenReturn(testUser);
 
         User result = userService.addRoleToUser(userId, RoleName.ROLE_ADMIN);
@@ -167,7 +170,8 @@ class UserServiceTest {
     @Test
     void hasRole_ShouldReturnTrue_WhenUserHasRole() {
         Long userId = 1L;
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+        when(roleCache.findByName(RoleName.ROLE_USER)).thenReturn(Optional.of(userRole));
+        when(userRepository.existsUserRole(userId, userRole.getId())).thenReturn(true);
 
         boolean result = userService.hasRole(userId, RoleName.ROLE_USER);
 
@@ -177,7 +181,9 @@ class UserServiceTest {
     @Test
     void hasRole_ShouldReturnFalse_WhenUserDoesNotHaveRole() {
         Long userId = 1L;
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
+        Role adminRole = Role.builder().id(2L).name(RoleName.ROLE_ADMIN).build();
+        when(roleCache.findByName(RoleName.ROLE_ADMIN)).thenReturn(Optional.of(adminRole));
+        when(userRepository.existsUserRole(userId, adminRole.getId())).thenReturn(false);
 
         boolean result = userService.hasRole(userId, RoleName.ROLE_ADMIN);
 
@@ -198,6 +204,7 @@ class UserServiceTest {
         assertEquals(encodedNewPassword, testUser.getPassword());
         verify(passwordEncoder).encode(newPassword);
         verify(userRepository).save(testUser);
+        verify(refreshTokenService).revokeAll(testUser);
     }
 
     @Test
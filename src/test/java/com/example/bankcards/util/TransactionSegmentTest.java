@@ -0,0 +1,59 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionSegmentTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void findByCard_ShouldReturnRowsWhereCardIsSenderOrRecipient() throws IOException {
+        LocalDateTime date = LocalDateTime.of(2025, 3, 10, 12, 30, 15, 123_456_000);
+        TransactionSegment.Row first = new TransactionSegment.Row(10L, 1L, 2L, new BigDecimal("100.50"),
+                "Перевод", "COMPLETED", date, date.plusSeconds(1), null);
+        TransactionSegment.Row second = new TransactionSegment.Row(11L, 3L, 4L, new BigDecimal("5.00"),
+                null, "COMPLETED", date.plusHours(1), null, "ошибка");
+        TransactionSegment.Row third = new TransactionSegment.Row(15L, 2L, 3L, new BigDecimal("12345678901234567.89"),
+                "Возврат", "COMPLETED", date.plusDays(2), date.plusDays(2), null);
+        Path file = write(List.of(first, second, third));
+
+        try (TransactionSegment segment = TransactionSegment.open(file)) {
+            assertEquals(3, segment.getRowCount());
+            assertEquals(date, segment.getMinDate());
+            assertEquals(date.plusDays(2), segment.getMaxDate());
+            assertEquals(List.of(first, third), segment.findByCard(2L));
+            assertEquals(List.of(second, third), segment.findByCard(3L));
+            assertTrue(segment.findByCard(99L).isEmpty());
+        }
+    }
+
+    @Test
+    void open_ShouldRejectTruncatedFile() throws IOException {
+        LocalDateTime date = LocalDateTime.of(2025, 3, 10, 12, 0);
+        Path file = write(List.of(new TransactionSegment.Row(1L, 1L, 2L, BigDecimal.ONE, null, "COMPLETED", date, null, null)));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertThrows(IOException.class, () -> TransactionSegment.open(file).close());
+    }
+
+    private Path write(List<TransactionSegment.Row> rows) throws IOException {
+        Path file = tempDir.resolve("segment.seg");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            TransactionSegment.write(rows, out);
+        }
+        return file;
+    }
+}